@@ -0,0 +1,103 @@
+package de.jpaw.jdp.benchmarks;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import de.jpaw.dp.Jdp;
+import de.jpaw.dp.JdpKey;
+import de.jpaw.dp.Provider;
+import de.jpaw.jdp.benchmarks.hotpath.HotDependent;
+import de.jpaw.jdp.benchmarks.hotpath.HotPerThread;
+import de.jpaw.jdp.benchmarks.hotpath.HotService;
+import de.jpaw.jdp.benchmarks.hotpath.HotSingleton;
+import de.jpaw.jdp.benchmarks.hotpath.Unbound;
+
+// All resolution and instantiation paths, checked against baseline.properties by JdpBenchmarkGate (mvn verify -Pbenchmark-gate).
+// Lookups must not allocate, instantiations must allocate the instance only.
+//java -jar target/jdp-benchmarks.jar -prof gc ".*JdpAllocationBench.*"
+
+@State(value = Scope.Thread)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@BenchmarkMode(Mode.AverageTime)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JdpAllocationBench {
+    private static final JdpKey<HotSingleton> SINGLETON_KEY = Jdp.key(HotSingleton.class);
+    private static final JdpKey<HotDependent> DEPENDENT_KEY = Jdp.key(HotDependent.class);
+
+    private Provider<HotSingleton> singletonProvider;
+
+    @Setup
+    public void setupJdp() {
+        Jdp.reset();
+        Jdp.init("de.jpaw.jdp.benchmarks.hotpath");
+        singletonProvider = Jdp.getProvider(HotSingleton.class);
+    }
+
+    @Benchmark
+    public HotSingleton singleton() {
+        return Jdp.getRequired(HotSingleton.class);
+    }
+
+    @Benchmark
+    public HotService singletonByInterface() {
+        return Jdp.getRequired(HotService.class);
+    }
+
+    @Benchmark
+    public HotService qualifiedSingleton() {
+        return Jdp.getRequired(HotService.class, "blue");
+    }
+
+    @Benchmark
+    public Unbound optionalMissing() {
+        return Jdp.getOptional(Unbound.class);
+    }
+
+    @Benchmark
+    public Provider<HotSingleton> provider() {
+        return Jdp.getProvider(HotSingleton.class);
+    }
+
+    @Benchmark
+    public HotSingleton providerGet() {
+        return singletonProvider.get();
+    }
+
+    @Benchmark
+    public HotSingleton keySingleton() {
+        return SINGLETON_KEY.get();
+    }
+
+    @Benchmark
+    public HotDependent dependent() {
+        return Jdp.getRequired(HotDependent.class);
+    }
+
+    @Benchmark
+    public HotDependent keyDependent() {
+        return DEPENDENT_KEY.get();
+    }
+
+    @Benchmark
+    public HotPerThread perThread() {
+        return Jdp.getRequired(HotPerThread.class);
+    }
+
+    @Benchmark
+    public List<HotService> getAll() {
+        return Jdp.getAll(HotService.class);
+    }
+}
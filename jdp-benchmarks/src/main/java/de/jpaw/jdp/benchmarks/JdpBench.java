@@ -11,6 +11,7 @@ import org.openjdk.jmh.annotations.Setup;
 import org.openjdk.jmh.annotations.State;
 
 import de.jpaw.dp.Jdp;
+import de.jpaw.dp.JdpKey;
 import de.jpaw.jdp.benchmarks.jdp.JdpDependent;
 import de.jpaw.jdp.benchmarks.jdp.JdpSingleton;
 import de.jpaw.jdp.benchmarks.jdp.MyInterface;
@@ -29,6 +30,8 @@ import de.jpaw.jdp.benchmarks.jdp.MyInterface;
 @BenchmarkMode(Mode.AverageTime)
 public class JdpBench {
     private static final int NUM = 1000;
+    private static final JdpKey<JdpSingleton> SINGLETON_KEY = Jdp.key(JdpSingleton.class);
+    private static final JdpKey<JdpDependent> DEPENDENT_KEY = Jdp.key(JdpDependent.class);
 
     private MyInterface mySingleton;
     private MyInterface myDependent;
@@ -77,4 +80,14 @@ public class JdpBench {
     public MyInterface injectDependent() {
         return Jdp.getRequired(JdpDependent.class);
     }
+
+    @Benchmark
+    public MyInterface keySingleton() {
+        return SINGLETON_KEY.get();
+    }
+
+    @Benchmark
+    public MyInterface keyDependent() {
+        return DEPENDENT_KEY.get();
+    }
 }
@@ -0,0 +1,165 @@
+package de.jpaw.jdp.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.Result;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.ResultFormatType;
+
+/** Runs benchmarks with the GC profiler, writes the results as JSON, and compares them against a baseline.
+ *
+ * Usage: JdpBenchmarkGate {baseline.properties} {result.json}
+ *
+ * The baseline contains the keys {benchmark}.ns (average time per operation) and {benchmark}.bytes (allocation per operation),
+ * where {benchmark} is the simple class name and method, followed by the parameters in brackets, if any.
+ * A benchmark fails if its time exceeds the baseline by more than jdp.gate.timeThreshold (default 0.10, i.e. 10 %),
+ * or its allocation exceeds the baseline by more than jdp.gate.allocThreshold (default 0.05) plus 1 byte, the resolution of the profiler.
+ * Benchmarks or metrics without baseline value are reported, but not checked.
+ *
+ * System properties:
+ * <ul>
+ * <li>jdp.gate.timeThreshold: relative tolerance of the time per operation (default 0.10)</li>
+ * <li>jdp.gate.allocThreshold: relative tolerance of the allocation per operation (default 0.05)</li>
+ * <li>jdp.gate.include: regular expression of the benchmarks to run (default: JdpAllocationBench)</li>
+ * <li>jdp.gate.update=true: rewrite the baseline from the results instead of checking them</li>
+ * </ul>
+ * The process exits with status 1 if any benchmark regressed.
+ */
+public final class JdpBenchmarkGate {
+    private static final String ALLOCATION = "gc.alloc.rate.norm";
+    private static final double ALLOCATION_RESOLUTION = 1.0;
+
+    private JdpBenchmarkGate() {
+    }
+
+    /** Returns the key of a result in the baseline. */
+    private static String keyOf(RunResult r) {
+        final String benchmark = r.getParams().getBenchmark();
+        final StringBuilder b = new StringBuilder(benchmark.substring(benchmark.lastIndexOf('.', benchmark.lastIndexOf('.') - 1) + 1));
+        final Collection<String> params = r.getParams().getParamsKeys();
+        if (!params.isEmpty()) {
+            b.append('[');
+            boolean first = true;
+            for (String p : params) {
+                if (!first)
+                    b.append(',');
+                b.append(p).append('=').append(r.getParams().getParam(p));
+                first = false;
+            }
+            b.append(']');
+        }
+        return b.toString();
+    }
+
+    /** Returns the allocation per operation, or null if the GC profiler did not report it. Older JMH versions prefix the label with a dot. */
+    private static Double allocationOf(RunResult r) {
+        for (Map.Entry<String, Result> e : r.getSecondaryResults().entrySet()) {
+            if (e.getKey().endsWith(ALLOCATION))
+                return e.getValue().getScore();
+        }
+        return null;
+    }
+
+    private static Properties readBaseline(File file) throws IOException {
+        final Properties baseline = new Properties();
+        if (file.exists()) {
+            final Reader r = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8);
+            try {
+                baseline.load(r);
+            } finally {
+                r.close();
+            }
+        }
+        return baseline;
+    }
+
+    private static void writeBaseline(File file, Map<String, String> values) throws IOException {
+        final Writer w = Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8);
+        try {
+            w.write("# Baseline of the Jdp benchmarks, checked by JdpBenchmarkGate (mvn verify -Pbenchmark-gate).\n");
+            w.write("# {benchmark}.bytes is the allocation per operation, {benchmark}.ns the average time per operation.\n");
+            w.write("# Times depend on the machine: rerun with -Djdp.gate.update=true on the machine which runs the gate.\n");
+            for (Map.Entry<String, String> e : values.entrySet())
+                w.write(e.getKey() + "=" + e.getValue() + "\n");
+        } finally {
+            w.close();
+        }
+    }
+
+    /** Checks a single value and prints the outcome. Returns true if it regressed. */
+    private static boolean check(String key, double measured, String unit, Properties baseline, double threshold, double slack) {
+        final String expected = baseline.getProperty(key);
+        if (expected == null) {
+            System.out.println(String.format("%-60s %12.3f %-8s (no baseline)", key, measured, unit));
+            return false;
+        }
+        final double limit = Double.parseDouble(expected) * (1.0 + threshold) + slack;
+        final boolean regressed = measured > limit;
+        System.out.println(String.format("%-60s %12.3f %-8s baseline %12.3f, limit %12.3f%s", key, measured, unit, Double.parseDouble(expected), limit,
+          regressed ? "  REGRESSION" : ""));
+        return regressed;
+    }
+
+    public static void main(String [] args) throws RunnerException, IOException {
+        if (args.length != 2) {
+            System.err.println("Usage: JdpBenchmarkGate {baseline.properties} {result.json}");
+            System.exit(2);
+        }
+        final File baselineFile = new File(args[0]);
+        final double timeThreshold = Double.parseDouble(System.getProperty("jdp.gate.timeThreshold", "0.10"));
+        final double allocThreshold = Double.parseDouble(System.getProperty("jdp.gate.allocThreshold", "0.05"));
+        final Options options = new OptionsBuilder()
+          .include(System.getProperty("jdp.gate.include", JdpAllocationBench.class.getSimpleName()))
+          .addProfiler(GCProfiler.class)
+          .resultFormat(ResultFormatType.JSON)
+          .result(args[1])
+          .build();
+        final Collection<RunResult> results = new Runner(options).run();
+
+        if (Boolean.getBoolean("jdp.gate.update")) {
+            final Properties previous = readBaseline(baselineFile);
+            final Map<String, String> values = new TreeMap<String, String>();
+            for (String key : previous.stringPropertyNames())
+                values.put(key, previous.getProperty(key));
+            for (RunResult r : results) {
+                values.put(keyOf(r) + ".ns", String.format("%.3f", r.getPrimaryResult().getScore()));
+                final Double bytes = allocationOf(r);
+                if (bytes != null)
+                    values.put(keyOf(r) + ".bytes", String.format("%.1f", bytes));
+            }
+            writeBaseline(baselineFile, values);
+            System.out.println("Baseline " + baselineFile + " updated from " + results.size() + " benchmarks");
+            return;
+        }
+
+        final Properties baseline = readBaseline(baselineFile);
+        int regressions = 0;
+        for (RunResult r : results) {
+            final String key = keyOf(r);
+            if (check(key + ".ns", r.getPrimaryResult().getScore(), r.getPrimaryResult().getScoreUnit(), baseline, timeThreshold, 0.0))
+                ++regressions;
+            final Double bytes = allocationOf(r);
+            if (bytes != null && check(key + ".bytes", bytes, "B/op", baseline, allocThreshold, ALLOCATION_RESOLUTION))
+                ++regressions;
+        }
+        if (regressions > 0) {
+            System.out.println(regressions + " regressions against " + baselineFile);
+            System.exit(1);
+        }
+        System.out.println("No regressions against " + baselineFile);
+    }
+}
@@ -0,0 +1,172 @@
+package de.jpaw.jdp.benchmarks;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import de.jpaw.dp.Jdp;
+import de.jpaw.dp.JdpThreadLocal;
+import de.jpaw.dp.Provider;
+import de.jpaw.jdp.benchmarks.contention.Candidate;
+import de.jpaw.jdp.benchmarks.contention.ContendedSingleton;
+import de.jpaw.jdp.benchmarks.contention.PerThreadBean;
+import de.jpaw.jdp.benchmarks.contention.Service;
+
+// Accesses to the registry by many threads concurrently. Run a single configuration with
+//java -jar target/jdp-benchmarks.jar -f 3 -wi 3 -i 5 -t 64 -p candidates=100 ".*JdpContentionBench.*"
+// or the sweep over the thread counts 1, 8 and 64 (and all candidate counts) with
+//java -cp target/jdp-benchmarks.jar de.jpaw.jdp.benchmarks.JdpContentionBench 1 8 64
+// The rebind group always uses 7 reading and 1 writing thread per group, -t is rounded up to a multiple of 8 for it.
+
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@BenchmarkMode(Mode.AverageTime)
+public class JdpContentionBench {
+    private static final String PACKAGE = "de.jpaw.jdp.benchmarks.contention";
+    private static final int [] DEFAULT_THREADS = { 1, 8, 64 };
+
+    /** The autodetected beans, and a JdpThreadLocal. */
+    @State(value = Scope.Benchmark)
+    public static class Registry {
+        private JdpThreadLocal<PerThreadBean> threadLocal;
+
+        @Setup(Level.Trial)
+        public void setup() {
+            Jdp.reset();
+            Jdp.init(PACKAGE);
+            threadLocal = new JdpThreadLocal<PerThreadBean>(new Provider<PerThreadBean>() {
+                @Override
+                public PerThreadBean get() {
+                    return new PerThreadBean();
+                }
+            }, false, false);
+        }
+    }
+
+    /** Programmatically bound implementations of Candidate, unqualified as well as one per qualifier, and of Service. */
+    @State(value = Scope.Benchmark)
+    public static class Candidates {
+        @Param({ "1", "10", "100", "1000" })
+        public int candidates;
+
+        private String [] qualifiers;
+        private final Service [] alternatives = { new Candidate(1), new Candidate(2) };
+
+        @Setup(Level.Trial)
+        public void setup() {
+            Jdp.reset();
+            Jdp.init(PACKAGE);
+            qualifiers = new String [candidates];
+            for (int i = 0; i < candidates; ++i) {
+                qualifiers[i] = "q" + i;
+                Jdp.bind(new Candidate(i));
+                Jdp.bind(new Candidate(i), qualifiers[i]);
+            }
+            Jdp.bindInstanceTo(alternatives[0], Service.class);
+        }
+    }
+
+    /** Per thread position in the qualifiers, so that threads do not request the same qualifier in lockstep. */
+    @State(value = Scope.Thread)
+    public static class Cursor {
+        private int next = 0;
+
+        @Setup(Level.Trial)
+        public void setup() {
+            next = (int) (Thread.currentThread().getId() * 31);
+        }
+
+        int next(int limit) {
+            return (next++ & 0x7fffffff) % limit;
+        }
+    }
+
+    /** A fresh registry for every iteration, therefore the lazy singleton has not been constructed when the measurement starts. */
+    @State(value = Scope.Benchmark)
+    public static class FreshRegistry {
+        @Setup(Level.Iteration)
+        public void setup() {
+            Jdp.reset();
+            Jdp.init(PACKAGE);
+        }
+    }
+
+    /** All threads request the lazy singleton at the same time, the first access constructs it while the others wait. */
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    @Warmup(iterations = 10)
+    @Measurement(iterations = 50)
+    public ContendedSingleton lazySingletonFirstAccess(FreshRegistry registry) {
+        return Jdp.getRequired(ContendedSingleton.class);
+    }
+
+    @Benchmark
+    public PerThreadBean perThreadLookup(Registry registry) {
+        return Jdp.getRequired(PerThreadBean.class);
+    }
+
+    @Benchmark
+    public PerThreadBean threadLocalLookup(Registry registry) {
+        return registry.threadLocal.get();
+    }
+
+    @Benchmark
+    public Candidate qualifiedLookup(Candidates registry, Cursor cursor) {
+        return Jdp.getRequired(Candidate.class, registry.qualifiers[cursor.next(registry.candidates)]);
+    }
+
+    @Benchmark
+    public List<Candidate> getAll(Candidates registry) {
+        return Jdp.getAll(Candidate.class);
+    }
+
+    /** Resolution by 7 threads while another one keeps rebinding the type. Every rebinding invalidates the resolution cache. */
+    @Benchmark
+    @Group("rebind")
+    @GroupThreads(7)
+    public Service rebindReader(Candidates registry) {
+        return Jdp.getRequired(Service.class);
+    }
+
+    @Benchmark
+    @Group("rebind")
+    @GroupThreads(1)
+    public void rebindWriter(Candidates registry, Cursor cursor) {
+        Jdp.bindInstanceTo(registry.alternatives[cursor.next(2)], Service.class);
+    }
+
+    /** Runs all benchmarks of this class once per thread count, the thread counts are the arguments (default 1, 8 and 64). */
+    public static void main(String [] args) throws RunnerException {
+        int [] threadCounts = DEFAULT_THREADS;
+        if (args.length > 0) {
+            threadCounts = new int [args.length];
+            for (int i = 0; i < args.length; ++i)
+                threadCounts[i] = Integer.parseInt(args[i]);
+        }
+        for (int threads : threadCounts) {
+            final Options options = new OptionsBuilder()
+              .include(JdpContentionBench.class.getName() + ".*")
+              .threads(threads)
+              .forks(1)
+              .build();
+            new Runner(options).run();
+        }
+    }
+}
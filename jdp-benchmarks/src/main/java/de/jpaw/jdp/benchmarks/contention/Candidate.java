@@ -0,0 +1,15 @@
+package de.jpaw.jdp.benchmarks.contention;
+
+/** Implementation bound programmatically in varying numbers, with and without qualifiers. Not annotated, therefore not autodetected. */
+public class Candidate implements Service {
+    private final int id;
+
+    public Candidate(int id) {
+        this.id = id;
+    }
+
+    @Override
+    public int compute(int arg) {
+        return arg + id;
+    }
+}
@@ -0,0 +1,18 @@
+package de.jpaw.jdp.benchmarks.contention;
+
+import de.jpaw.dp.Singleton;
+
+/** Lazy singleton with a constructor which takes a few microseconds, to widen the window in which threads race for the first access. */
+@Singleton
+public class ContendedSingleton {
+    private final int [] table = new int [4096];
+
+    public ContendedSingleton() {
+        for (int i = 0; i < table.length; ++i)
+            table[i] = Integer.rotateLeft(i * 0x9E3779B9, i & 31);
+    }
+
+    public int compute(int arg) {
+        return table[arg & (table.length - 1)];
+    }
+}
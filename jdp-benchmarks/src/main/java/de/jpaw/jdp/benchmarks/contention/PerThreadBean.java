@@ -0,0 +1,11 @@
+package de.jpaw.jdp.benchmarks.contention;
+
+import de.jpaw.dp.PerThread;
+
+@PerThread
+public class PerThreadBean {
+
+    public int compute(int arg) {
+        return arg * arg;
+    }
+}
@@ -0,0 +1,5 @@
+package de.jpaw.jdp.benchmarks.contention;
+
+public interface Service {
+    int compute(int arg);
+}
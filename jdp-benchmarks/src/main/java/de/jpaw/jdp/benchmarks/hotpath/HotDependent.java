@@ -0,0 +1,11 @@
+package de.jpaw.jdp.benchmarks.hotpath;
+
+import de.jpaw.dp.Dependent;
+
+@Dependent
+public class HotDependent {
+
+    public int compute(int arg) {
+        return arg * arg;
+    }
+}
@@ -0,0 +1,11 @@
+package de.jpaw.jdp.benchmarks.hotpath;
+
+import de.jpaw.dp.PerThread;
+
+@PerThread
+public class HotPerThread {
+
+    public int compute(int arg) {
+        return arg * arg;
+    }
+}
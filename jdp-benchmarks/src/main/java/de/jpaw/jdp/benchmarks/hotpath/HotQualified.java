@@ -0,0 +1,14 @@
+package de.jpaw.jdp.benchmarks.hotpath;
+
+import de.jpaw.dp.Named;
+import de.jpaw.dp.Singleton;
+
+@Singleton
+@Named("blue")
+public class HotQualified implements HotService {
+
+    @Override
+    public int compute(int arg) {
+        return arg + arg;
+    }
+}
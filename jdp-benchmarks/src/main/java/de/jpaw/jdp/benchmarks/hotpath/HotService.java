@@ -0,0 +1,5 @@
+package de.jpaw.jdp.benchmarks.hotpath;
+
+public interface HotService {
+    int compute(int arg);
+}
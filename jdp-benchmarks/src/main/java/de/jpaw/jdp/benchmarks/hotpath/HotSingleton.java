@@ -0,0 +1,12 @@
+package de.jpaw.jdp.benchmarks.hotpath;
+
+import de.jpaw.dp.Singleton;
+
+@Singleton
+public class HotSingleton implements HotService {
+
+    @Override
+    public int compute(int arg) {
+        return arg * arg;
+    }
+}
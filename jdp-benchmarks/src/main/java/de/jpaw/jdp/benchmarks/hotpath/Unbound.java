@@ -0,0 +1,5 @@
+package de.jpaw.jdp.benchmarks.hotpath;
+
+/** Interface without any implementation, for negative lookups. */
+public interface Unbound {
+}
@@ -4,6 +4,8 @@ import java.lang.annotation.Annotation;
 import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
@@ -11,8 +13,12 @@ import java.util.Map;
 import java.util.Set;
 import java.util.SortedMap;
 import java.util.TreeMap;
+import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
 import org.reflections.Reflections;
 import org.slf4j.Logger;
@@ -24,12 +30,15 @@ import com.google.common.collect.ImmutableSet;
 
 import de.jpaw.dp.exceptions.ClassRegisteredTwiceException;
 import de.jpaw.dp.exceptions.DuplicateStartupSortOrderException;
+import de.jpaw.dp.exceptions.EagerSingletonInstantiationException;
 import de.jpaw.dp.exceptions.MissingOnStartupMethodException;
 import de.jpaw.dp.exceptions.MultipleDefaultsException;
 import de.jpaw.dp.exceptions.MultipleFallbacksException;
 import de.jpaw.dp.exceptions.NoSuitableImplementationException;
 import de.jpaw.dp.exceptions.NoSuitableProviderException;
 import de.jpaw.dp.exceptions.NonuniqueImplementationException;
+import de.jpaw.dp.exceptions.NotStructuredScopeException;
+import de.jpaw.dp.exceptions.StructuredScopeBindingException;
 import de.jpaw.dp.exceptions.StartupBeanInstantiationException;
 import de.jpaw.dp.exceptions.StartupMethodExecutionException;
 
@@ -63,15 +72,25 @@ public class Jdp {
     private static final Logger LOGGER = LoggerFactory.getLogger(Jdp.class);
     private static final ConcurrentMap<String, Boolean> doNotRegisterFor     = new ConcurrentHashMap<String, Boolean>(32);   // can be used to avoid registering injections also for java.lang.*
     private static final ConcurrentMap<String, Boolean> onlyRegisterFor      = new ConcurrentHashMap<String, Boolean>(32);   // can be used to limit subtypes to listed packages
+    private static volatile JdpPrefixFilter prefixFilter                     = newPrefixFilter();   // compiled form of the two maps above
 
-    private static final Map<Class<?>, JdpTypeEntry<?>> typeIndex            = new ConcurrentHashMap<Class<?>, JdpTypeEntry<?>>(1000);
-    private static Map<Class<?>, JdpEntry<?>> allAutodetectedClasses         = new ConcurrentHashMap<Class<?>, JdpEntry<?>>(1000);  // used for determining the scope
-    private static Map<Class<?>, JdpEntry<?>> classesOverriddenBySpecialized = new ConcurrentHashMap<Class<?>, JdpEntry<?>>(1000);  // used to mark classes which are overridden
+    private static final JdpTypeIndex typeIndex                              = new JdpTypeIndex();  // type entries, autodetected and specialized classes, attached to the classes
+    private static final List<JdpEntry<?>> pendingEagerSingletons             = new ArrayList<JdpEntry<?>>(100);  // eager singletons not yet constructed
+    private static final JdpResolutionCache resolutionCache                  = new JdpResolutionCache();  // caches resolved providers, invalidated by any registry change
     static public boolean registerAbstractClasses = false;  // normally, abstract classes should not be registered.
+    static public int scanThreads = 1;                      // number of threads used to scan multiple package prefixes concurrently
+    static public int startupThreads = 1;                   // number of threads used to run independent @Startup stages concurrently, 1 runs all stages sequentially
+    static public int startupPriorityBand = 1;              // with startupThreads > 1: stages whose @Startup values fall into the same band of this width run concurrently
+    static public boolean useIndex = true;                  // use META-INF/jdp/index resources written by jdp-processor instead of classpath scanning, where available
+    static public boolean eagerSingletons = false;          // construct all @Singleton instances during init, not only the ones with eager = true
+    static public int eagerThreads = 1;                     // number of threads used to construct eager singletons concurrently
+    static public long slowStageMillis = 0L;                // if positive, the stack of any scan or startup phase running longer than this is logged
+    static public int startupReportEntries = 10;            // number of the slowest phases logged at INFO after init, the full report is logged at DEBUG
+    static public boolean traceConstructions = false;       // record the nesting of all constructions, see constructionTrace()
 
     // typesafe access methods
     private static <X> JdpTypeEntry<X> getType(Class<X> type) {
-        return (JdpTypeEntry<X>) typeIndex.get(type);
+        return typeIndex.getTypeEntry(type);
     }
 
     public static String dump(Class<?> type) {
@@ -85,25 +104,34 @@ public class Jdp {
     public static String dump() {
         StringBuilder b = new StringBuilder(2000);
         b.append("Full Jdp type dump:\n");
-        for (Map.Entry<Class<?>, JdpTypeEntry<?>> e : typeIndex.entrySet()) {
-            b.append("Registered entries for type "  + e.getKey().getSimpleName() + " are\n" + e.getValue().dump());
+        for (Class<?> type : typeIndex.getTypes()) {
+            final JdpTypeEntry<?> te = typeIndex.getTypeEntry(type);
+            if (te != null)
+                b.append("Registered entries for type "  + type.getSimpleName() + " are\n" + te.dump());
         }
         return b.toString();
     }
 
-    /** Superclass and interfaces are only registered if they do not start with one of the registered prefixes.
-     * @param exclusion Package prefix to exclude, for example "java."
+    /** Classes, superclasses and interfaces are only registered if they do not start with one of the registered prefixes.
+     * Package prefixes which start with an excluded prefix are not scanned.
+     * @param exclusion Package prefix to exclude, for example "java.", matched against canonical class names
      */
     public static void excludePackagePrefix(String exclusion) {
-        doNotRegisterFor.putIfAbsent(exclusion, Boolean.TRUE);
+        if (doNotRegisterFor.putIfAbsent(exclusion, Boolean.TRUE) == null)
+            prefixFilter = newPrefixFilter();
     }
 
     /** If at least one package prefix is provided by this method, then superclass and interfaces are only
-     * registered if they start with one of the explicitly registered prefixes.
-     * @param inclusion
+     * registered if they start with one of the explicitly registered prefixes. This does not restrict which classes are scanned.
+     * @param inclusion Package prefix to include, matched against canonical class names
      */
     public static void includePackagePrefix(String inclusion) {
-        onlyRegisterFor.putIfAbsent(inclusion, Boolean.TRUE);
+        if (onlyRegisterFor.putIfAbsent(inclusion, Boolean.TRUE) == null)
+            prefixFilter = newPrefixFilter();
+    }
+
+    private static JdpPrefixFilter newPrefixFilter() {
+        return new JdpPrefixFilter(onlyRegisterFor.keySet(), doNotRegisterFor.keySet());
     }
 
     /** returns an object of the requested type. Exception: if the type is an interface, an implementation of it is returned. */
@@ -154,19 +182,55 @@ public class Jdp {
         return firstEntry;
     }
     static public <T> Provider<T> getOptionalProvider(Class<T> type, String qualifier) {
+        final int epoch = resolutionCache.epoch();
+        final Provider<?> cached = resolutionCache.get(type, qualifier, epoch);
+        if (cached != null) {
+            final Provider<T> result = cached == JdpResolutionCache.NO_PROVIDER ? null : (Provider<T>) cached;
+            if (JdpMetricsRecorder.ENABLED)
+                JdpMetricsRecorder.lookup(type, qualifier, result);
+            return result;
+        }
+        final Provider<T> resolved = resolveProvider(type, qualifier);
+        resolutionCache.put(type, qualifier, epoch, resolved);
+        if (JdpMetricsRecorder.ENABLED)
+            JdpMetricsRecorder.lookup(type, qualifier, resolved);
+        return resolved;
+    }
+
+    /** Returns a snapshot of the usage counters. Counters are only collected if the JVM has been started with -Djdp.metrics=true. */
+    static public JdpMetrics metrics() {
+        return JdpMetricsRecorder.snapshot();
+    }
+
+    /** Returns a precomputed handle for the type, which resolves the provider once and again only after a rebinding. */
+    static public <T> JdpKey<T> key(Class<T> type) {
+        return new JdpKey<T>(type, null);
+    }
+    static public <T> JdpKey<T> key(Class<T> type, String qualifier) {
+        return new JdpKey<T>(type, qualifier);
+    }
+
+    /** Returns the epoch of the registry, which changes with every rebinding. */
+    static int resolutionEpoch() {
+        return resolutionCache.epoch();
+    }
+
+    /** Determines the provider for a type and qualifier, using the prioritization rules. The result is cached by the caller. */
+    private static <T> Provider<T> resolveProvider(Class<T> type, String qualifier) {
         JdpTypeEntry<T> te = getType(type);
         if (te != null) {
-            List<JdpEntry<? extends T>> entries = te.getEntries(qualifier);
-            if (entries != null && entries.size() > 0) {
+            JdpTypeEntry.Entries<T> entries = te.getEntries(qualifier);
+            if (entries != null && entries.size > 0) {
                 JdpEntry<? extends T> candidate = entries.get(0);       // first shot at an result
-                if (entries.size() > 1) {
+                if (entries.size > 1) {
                     // perform a second scanning with detailed prioritization of the candidates
                     JdpEntry<? extends T> myFallback = null;
                     JdpEntry<? extends T> myDefault = null;
                     // need to cut down the result set... Filter away all alternatives, fallbacks and ones which have been specialized
                     int countEligible = 0;
-                    for (JdpEntry<? extends T> e : entries) {
-                        if (!e.isAlternative && classesOverriddenBySpecialized.get(e.actualType) == null) {
+                    for (int i = 0; i < entries.size; ++i) {
+                        final JdpEntry<? extends T> e = entries.get(i);
+                        if (!e.isAlternative && typeIndex.getSpecializedBy(e.actualType) == null) {
                             if (e.isDefault) {
                                 if (myDefault != null)
                                     throw new MultipleDefaultsException(type, qualifier);
@@ -202,8 +266,32 @@ public class Jdp {
     }
 
 
-    /** Destructs all objects which have been created in this thread context. */
+    /** Destructs all objects which have been created in this thread context.
+     * All thread bound scopes (PerThread, ThreadScope, JdpThreadLocal, JdpThreadLocalStrict) populated by this thread are closed,
+     * and instances implementing AutoCloseable are closed as well. Intended to be called by pooled threads after every task. */
     static public void clearThreadContext() {
+        JdpThreadContext.clear();
+    }
+
+    /** Returns bindings of an instance to a class of the Structured scope, which can be established for a block by run() or call(). */
+    static public <T> JdpBindings where(Class<T> type, T instance) {
+        return new JdpBindings(null, getStructuredScope(type), instance);
+    }
+
+    /** Returns bindings of an instance to an explicitly created structured scope, which can be established for a block by run() or call(). */
+    static public <T> JdpBindings where(StructuredScope<T> scope, T instance) {
+        return new JdpBindings(null, scope, instance);
+    }
+
+    /** Returns the structured scope which provides instances of type. */
+    static <T> StructuredScope<T> getStructuredScope(Class<T> type) {
+        final Provider<T> provider = getProvider(type);
+        if (provider instanceof JdpEntry) {
+            final Provider<T> scope = ((JdpEntry<T>) provider).getCustomScope();
+            if (scope instanceof StructuredScope)
+                return (StructuredScope<T>) scope;
+        }
+        throw new NotStructuredScopeException(type);
     }
 
     /** Returns all qualifiers for which an implemenation has been found. */
@@ -288,7 +376,7 @@ public class Jdp {
      *
      */
     static public Scopes getScopeForClassname(Class<?> baseClass, String classname, String qualifier) {
-        JdpTypeEntry<?> te = typeIndex.get(baseClass);
+        JdpTypeEntry<?> te = getType(baseClass);
         return te == null ? null : te.getScopeForClassname(classname, qualifier);
     }
 
@@ -349,7 +437,7 @@ public class Jdp {
     /** Bind source to type as if it had the specified qualifier. */
     static public <T> void bindClassToQualifier(Class<? extends T> source, Class<T> type, String qualifier) {
         // the class must have been registered via autodetection without a qualifier before...
-        JdpEntry<?> entry = allAutodetectedClasses.get(source);
+        JdpEntry<?> entry = typeIndex.getAutodetected(source);
         if (entry == null)
             throw new NoSuitableImplementationException(source);
         bindEntryTo((JdpEntry<T>)entry, type, qualifier, true);
@@ -358,28 +446,32 @@ public class Jdp {
      * Useful for selection of a couple of alternatives via config file. */
     static public <T> void bindClassWithoutQualifier(Class<? extends T> source, Class<T> type) {
         // the class must have been registered via autodetection without a qualifier before...
-        JdpEntry<?> entry = allAutodetectedClasses.get(source);
+        JdpEntry<?> entry = typeIndex.getAutodetected(source);
         if (entry == null)
             throw new NoSuitableImplementationException(source);
         bindEntryTo((JdpEntry<T>)entry, type, null, true);
     }
 
 
+    /** Instances of the Structured scope are bound for the duration of a block by where(), they cannot be bound permanently. */
+    private static void rejectStructured(Class<?> type) {
+        if (type.getAnnotation(Structured.class) != null)
+            throw new StructuredScopeBindingException(type);
+    }
+
     /** internal subroutine: register an existing entry for a type. */
     private static <T> void bindEntryTo(JdpEntry<T> newEntry, Class<T> type, String qualifier, boolean clearOthers) {
         synchronized (typeIndex) {
             JdpTypeEntry<? super T> e = getType(type);
             if (e == null) {
-                typeIndex.put(type, new JdpTypeEntry<T>(newEntry));
+                typeIndex.putTypeEntry(type, new JdpTypeEntry<T>(newEntry));
             } else {
-                if (clearOthers) {
-                    if (qualifier != null)
-                        e.clear(qualifier);     // clear only entries for this qualifier
-                    else
-                        e.clear();              // clear all
-                }
-                e.addEntry(newEntry);
+                if (clearOthers)
+                    e.replaceEntries(qualifier, newEntry);  // clear only entries for this qualifier, or all for a null qualifier
+                else
+                    e.addEntry(newEntry);
             }
+            resolutionCache.invalidate();
         }
     }
 
@@ -389,15 +481,18 @@ public class Jdp {
      * Mega k = new Mega();
      * k.bindInstanceTo("Mega", null, true);   */
     private static <T> void bindInstanceTo(T source, Class<T> type, String qualifier, boolean clearOthers) {
+        rejectStructured(type);
         JdpEntry<T> newEntry = new JdpEntry<T>(source, qualifier);
         bindEntryTo(newEntry, type, qualifier, clearOthers);
     }
     // Java, give me default parameters please...
     static public <T> void bindInstanceTo(T source, Class<T> type, String qualifier) {
+        rejectStructured(type);
         JdpEntry<T> newEntry = new JdpEntry<T>(source, qualifier);
         bindEntryTo(newEntry, type, qualifier, true);
     }
     static public <T> void bindInstanceTo(T source, Class<T> type) {
+        rejectStructured(type);
         JdpEntry<T> newEntry = new JdpEntry<T>(source, null);
         bindEntryTo(newEntry, type, null, true);
     }
@@ -408,6 +503,7 @@ public class Jdp {
     static public <T> void bind(T source) {
         JdpEntry<T> newEntry = new JdpEntry<T>(source, null);
         Class<T> cls = (Class<T>) source.getClass();
+        rejectStructured(cls);
         register(cls, newEntry);
     }
 
@@ -416,6 +512,7 @@ public class Jdp {
     static public <T> void bind(T source, String qualifier) {
         JdpEntry<T> newEntry = new JdpEntry<T>(source, qualifier);
         Class<T> cls = (Class<T>) source.getClass();
+        rejectStructured(cls);
         register(cls, newEntry);
     }
 
@@ -436,34 +533,18 @@ public class Jdp {
         synchronized (typeIndex) {
             JdpTypeEntry<? super T> e = getType(forWhat);
             if (e == null) {
-                typeIndex.put(forWhat, new JdpTypeEntry<T>(entry));
+                typeIndex.putTypeEntry(forWhat, new JdpTypeEntry<T>(entry));
             } else {
                 e.addEntry(entry);
             }
+            resolutionCache.invalidate();
         }
     }
 
     private static <Q> void registerClassAndAllInterfaces(Class<? super Q> cls, JdpEntry<Q> newEntry, Set<Class<?>> classesDone, boolean skipCheck) {
-        if (!skipCheck) {
-            if (onlyRegisterFor.size() > 0) {
-                boolean includedPrefix = false;
-                for (String inclusion : onlyRegisterFor.keySet()) {
-                    if (cls.getCanonicalName().startsWith(inclusion)) {
-                        includedPrefix = true;
-                        break;
-                    }
-                }
-                if (!includedPrefix) {
-                    LOGGER.debug("    not registering for {}: not in inclusion list", cls.getCanonicalName());
-                    return;
-                }
-            }
-            for (String exclusion : doNotRegisterFor.keySet()) {
-                if (cls.getCanonicalName().startsWith(exclusion)) {
-                    LOGGER.debug("    not registering for {}: exclusion list entry {}", cls.getCanonicalName(), exclusion);
-                    return;
-                }
-            }
+        if (!skipCheck && !prefixFilter.acceptsAsType(cls)) {
+            LOGGER.debug("    not registering for {}: excluded by package prefixes", cls.getCanonicalName());
+            return;
         }
         if (!classesDone.contains(cls)) {
             LOGGER.debug("    registering for {}", cls.getCanonicalName());
@@ -487,16 +568,111 @@ public class Jdp {
             LOGGER.debug("    not registering class {}: it's abstract! (Set Jdp.registerAbstractClasses to true if you want that.)", cls.getCanonicalName());
             return;
         }
+        if (prefixFilter.isExcluded(cls)) {
+            LOGGER.debug("    not registering class {}: excluded by package prefixes", cls.getCanonicalName());
+            return;
+        }
         
         LOGGER.debug("register({})", cls.getCanonicalName());
+        if (scope == Scopes.LAZY_SINGLETON && isEager(cls))
+            scope = Scopes.EAGER_SINGLETON;
         JdpEntry<T> newEntry = new JdpEntry<T>(cls, scope);
-        if (allAutodetectedClasses.put(cls, newEntry) != null) {
+        if (typeIndex.putAutodetected(cls, newEntry) != null) {
             throw new ClassRegisteredTwiceException(cls);
         }
+        if (scope == Scopes.EAGER_SINGLETON) {
+            synchronized (pendingEagerSingletons) {
+                pendingEagerSingletons.add(newEntry);
+            }
+        }
         registerSub(cls, newEntry, false, true);
 //        LOGGER.info("<<< register done for class {}", cls.getCanonicalName());
     }
 
+    /** Determines if a singleton should be constructed during init. */
+    private static boolean isEager(Class<?> cls) {
+        if (eagerSingletons)
+            return true;
+        final Singleton anno = cls.getAnnotation(Singleton.class);
+        return anno != null && anno.eager();
+    }
+
+    /** Constructs all eager singletons registered since the last call, concurrently if eagerThreads is greater than 1.
+     * Singletons which depend on each other wait for the construction of their dependencies (in any thread).
+     * All singletons are attempted. If any failed, an EagerSingletonInstantiationException is thrown for the first failure,
+     * with the others attached as suppressed exceptions.
+     * Called by init() before the startup classes run, it must be called explicitly if scanClasses() and runStartups() are used. */
+    static public void instantiateEagerSingletons() {
+        final List<JdpEntry<?>> entries;
+        synchronized (pendingEagerSingletons) {
+            entries = new ArrayList<JdpEntry<?>>(pendingEagerSingletons);
+            pendingEagerSingletons.clear();
+        }
+        if (entries.isEmpty())
+            return;
+        LOGGER.info("Constructing {} eager singletons", entries.size());
+        final JdpStartupTimer timer = JdpStartupTimer.start(JdpStartupReport.Phase.EAGER_SINGLETONS, entries.size() + " singletons");
+        try {
+            instantiateEager(entries);
+        } finally {
+            timer.stop();
+        }
+    }
+
+    private static void instantiateEager(final List<JdpEntry<?>> entries) {
+        final RuntimeException [] failures = new RuntimeException [entries.size()];     // by position, visible after Future.get()
+        if (eagerThreads <= 1 || entries.size() == 1) {
+            for (int i = 0; i < entries.size(); ++i)
+                failures[i] = instantiateEager(entries.get(i));
+        } else {
+            final ExecutorService executor = JdpThreadFactory.newPool("jdp-eager", eagerThreads, entries.size());
+            try {
+                final List<Future<?>> futures = new ArrayList<Future<?>>(entries.size());
+                for (int i = 0; i < entries.size(); ++i) {
+                    final int index = i;
+                    futures.add(executor.submit(new Runnable() {
+                        @Override
+                        public void run() {
+                            failures[index] = instantiateEager(entries.get(index));
+                        }
+                    }));
+                }
+                for (Future<?> f : futures)
+                    f.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while constructing eager singletons", e);
+            } catch (ExecutionException e) {
+                throw new IllegalStateException("Constructing eager singletons failed", e.getCause());
+            } finally {
+                executor.shutdown();
+            }
+        }
+        EagerSingletonInstantiationException result = null;
+        for (int i = 0; i < failures.length; ++i) {
+            if (failures[i] != null) {
+                final EagerSingletonInstantiationException e = new EagerSingletonInstantiationException(entries.get(i).actualType, failures[i]);
+                if (result == null)
+                    result = e;
+                else
+                    result.addSuppressed(e);
+            }
+        }
+        if (result != null)
+            throw result;
+    }
+
+    /** Constructs the singleton, and returns the exception if that failed. */
+    private static RuntimeException instantiateEager(JdpEntry<?> e) {
+        try {
+            e.getSingleton();
+            return null;
+        } catch (RuntimeException ex) {
+            LOGGER.error("Cannot construct eager singleton {}", e.actualType.getCanonicalName(), ex);
+            return ex;
+        }
+    }
+
     /** Registers a class to itself and to all of its directly implemented interfaces and to its superclasses
      * The scope passed from the outside, it is used for autodetection of the classes.
      * Here, abstract classes are possible, because the custom provider could return a non abstract subclass of it. */
@@ -513,38 +689,198 @@ public class Jdp {
         Class<? super T> parent = cls.getSuperclass();
         while (parent != null && parent != Object.class) {
             if (withSpecializes && newEntry.specializes) {
-                classesOverriddenBySpecialized.put(parent, newEntry);
+                synchronized (typeIndex) {
+                    typeIndex.putSpecializedBy(parent, newEntry);
+                    resolutionCache.invalidate();       // the registration of parent below may be skipped
+                }
             }
             registerClassAndAllInterfaces(parent, newEntry, classesDone, false);
             parent = parent.getSuperclass();
         }
     }
 
-    private static void initsub(Reflections reflections, Class<? extends Annotation> annotationClass, Scopes scope) {
-        Set<Class<?>> instances = reflections.getTypesAnnotatedWith(annotationClass);
-        LOGGER.info("Found {} {}", instances.size(), annotationClass.getSimpleName());
+    /** The scope annotations, in the sequence they are processed, and the scopes assigned to classes carrying them. */
+    private static final List<Class<? extends Annotation>> SCOPE_ANNOTATIONS = ImmutableList.<Class<? extends Annotation>>of(
+      Singleton.class, Dependent.class, PerThread.class, ScopeWithCustomProvider.class, Structured.class);
+    private static final List<Scopes> SCOPES_BY_ANNOTATION = ImmutableList.of(
+      Scopes.LAZY_SINGLETON, Scopes.DEPENDENT, Scopes.PER_THREAD, Scopes.CUSTOM, Scopes.STRUCTURED);
+
+    private static final Comparator<Class<?>> BY_NAME = new Comparator<Class<?>>() {
+        @Override
+        public int compare(Class<?> a, Class<?> b) {
+            return a.getName().compareTo(b.getName());
+        }
+    };
+
+    /** Collects the classes carrying any of the scope annotations, per annotation, sorted by class name to obtain a reproducible registration order.
+     * This only queries the Reflections instance and does not modify the registry, therefore it can run concurrently. */
+    private static List<List<Class<?>>> collectScopedClasses(Reflections reflections) {
+        final List<List<Class<?>>> result = new ArrayList<List<Class<?>>>(SCOPE_ANNOTATIONS.size());
+        for (Class<? extends Annotation> annotationClass : SCOPE_ANNOTATIONS) {
+            final List<Class<?>> instances = new ArrayList<Class<?>>(reflections.getTypesAnnotatedWith(annotationClass));
+            Collections.sort(instances, BY_NAME);
+            result.add(instances);
+        }
+        return result;
+    }
 
-        // bind them (and maybe load them eagerly)
-        for (Class<?> s : instances) {
-            registerInternal(s, scope);
+    /** Registers the collected classes and returns their number. */
+    private static int registerScopedClasses(String name, List<List<Class<?>>> scopedClasses) {
+        final JdpStartupTimer timer = JdpStartupTimer.start(JdpStartupReport.Phase.REGISTRATION, name);
+        try {
+            return registerScopedClasses(scopedClasses);
+        } finally {
+            timer.stop();
         }
+    }
+
+    private static int registerScopedClasses(List<List<Class<?>>> scopedClasses) {
+        int count = 0;
+        for (int i = 0; i < SCOPE_ANNOTATIONS.size(); ++i) {
+            final List<Class<?>> instances = scopedClasses.get(i);
+            LOGGER.info("Found {} {}", instances.size(), SCOPE_ANNOTATIONS.get(i).getSimpleName());
+            count += instances.size();
 
+            // bind them (and maybe load them eagerly)
+            for (Class<?> s : instances) {
+                registerInternal(s, SCOPES_BY_ANNOTATION.get(i));
+            }
+        }
+        return count;
     }
 
+    /** Returns the build time index, if it should be used for the given prefix, else null. */
+    private static JdpIndex indexFor(String prefix) {
+        if (!useIndex)
+            return null;
+        final JdpIndex index = JdpIndex.get();
+        return index != null && index.covers(prefix) ? index : null;
+    }
 
     static public void scanClasses(String prefix) {
-        LOGGER.info("Jdp (a no DI framework) scanner running for package prefix {}", prefix);
+        final Object event = JdpFlightRecorder.INSTANCE.beginScan();
+        final String source;
+        int count = 0;
+        if (!prefixFilter.mayAccept(prefix)) {
+            LOGGER.info("Jdp (a no DI framework) skipping package prefix {}, it is excluded", prefix);
+            source = "excluded";
+        } else {
+            final JdpIndex index = indexFor(prefix);
+            if (index != null) {
+                LOGGER.info("Jdp (a no DI framework) using build time index for package prefix {}", prefix);
+                source = "index";
+                count = scanIndex(index, prefix);
+            } else {
+                LOGGER.info("Jdp (a no DI framework) scanner running for package prefix {}", prefix);
+                source = "classpath";
+                final JdpStartupTimer timer = JdpStartupTimer.start(JdpStartupReport.Phase.SCAN, prefix);
+                final List<List<Class<?>>> scopedClasses;
+                try {
+                    scopedClasses = collectScopedClasses(ReflectionsPackageCache.get(prefix));
+                } finally {
+                    timer.stop();
+                }
+                count = registerScopedClasses(prefix, scopedClasses);
+            }
+        }
+        if (event != null)
+            JdpFlightRecorder.INSTANCE.commitScan(event, prefix, source, count);
+    }
 
-        scanClasses(ReflectionsPackageCache.get(prefix));
+    /** Registers the classes listed in the build time index for the given prefix, and returns the number of accepted ones. */
+    private static int scanIndex(JdpIndex index, String prefix) {
+        final List<JdpIndex.Entry> entries = index.getScopedClasses(prefix);
+        LOGGER.info("Found {} indexed classes", entries.size());
+        final JdpPrefixFilter filter = prefixFilter;
+        final JdpStartupTimer timer = JdpStartupTimer.start(JdpStartupReport.Phase.REGISTRATION, prefix);
+        int count = 0;
+        try {
+            for (JdpIndex.Entry e : entries) {
+                if (!filter.isExcluded(e.classname)) {   // avoids loading excluded classes
+                    registerInternal(index.loadClass(e), e.scope);
+                    ++count;
+                }
+            }
+        } finally {
+            timer.stop();
+        }
+        return count;
     }
 
     /** Scan classes for the provided reflections parameters. */
     static public void scanClasses(Reflections ... reflections) {
-        for (int i = 0; i < reflections.length; ++i) {
-            initsub(reflections[i], Singleton.class, Scopes.LAZY_SINGLETON);
-            initsub(reflections[i], Dependent.class, Scopes.DEPENDENT);
-            initsub(reflections[i], PerThread.class, Scopes.PER_THREAD);
-            initsub(reflections[i], ScopeWithCustomProvider.class, Scopes.CUSTOM);
+        if (scanThreads > 1 && reflections.length > 1) {
+            // query concurrently, but register sequentially in the provided order
+            for (List<List<Class<?>>> scopedClasses : collectScopedClassesParallel(reflections))
+                registerScopedClasses("(prescanned)", scopedClasses);
+        } else {
+            for (int i = 0; i < reflections.length; ++i) {
+                registerScopedClasses("(prescanned)", collectScopedClasses(reflections[i]));
+            }
+        }
+    }
+
+    /** Scan classes for multiple package prefixes. Prefixes not covered by the build time index are scanned concurrently if scanThreads is greater than 1.
+     * Registration is performed in the order of the prefixes. */
+    static public void scanClasses(String ... prefixes) {
+        final boolean [] indexed = new boolean [prefixes.length];
+        final List<String> toScan = new ArrayList<String>(prefixes.length);
+        for (int i = 0; i < prefixes.length; ++i) {
+            indexed[i] = indexFor(prefixes[i]) != null || !prefixFilter.mayAccept(prefixes[i]);    // excluded ones are skipped by scanClasses(prefix)
+            if (!indexed[i])
+                toScan.add(prefixes[i]);
+        }
+        final Reflections [] reflections;
+        if (toScan.isEmpty()) {
+            reflections = new Reflections [0];      // all prefixes are indexed or excluded, the report gets no empty SCAN phase
+        } else {
+            final JdpStartupTimer timer = JdpStartupTimer.start(JdpStartupReport.Phase.SCAN, String.join(", ", toScan));
+            try {
+                reflections = ReflectionsPackageCache.getAllParallel(scanThreads, toScan.toArray(new String [toScan.size()]));
+            } finally {
+                timer.stop();
+            }
+        }
+        if (scanThreads > 1 && reflections.length > 1)
+            LOGGER.info("Jdp (a no DI framework) scanned {} package prefixes concurrently", reflections.length);
+        int j = 0;
+        for (int i = 0; i < prefixes.length; ++i) {
+            if (indexed[i]) {
+                scanClasses(prefixes[i]);   // uses the index, or skips the prefix
+            } else {
+                final Object event = JdpFlightRecorder.INSTANCE.beginScan();
+                final int count = registerScopedClasses(prefixes[i], collectScopedClasses(reflections[j++]));
+                if (event != null)
+                    JdpFlightRecorder.INSTANCE.commitScan(event, prefixes[i], "prescanned", count);
+            }
+        }
+    }
+
+    private static List<List<List<Class<?>>>> collectScopedClassesParallel(Reflections [] reflections) {
+        final ExecutorService executor = JdpThreadFactory.newPool("jdp-scan", scanThreads, reflections.length);
+        try {
+            final List<Future<List<List<Class<?>>>>> futures = new ArrayList<Future<List<List<Class<?>>>>>(reflections.length);
+            for (final Reflections r : reflections) {
+                futures.add(executor.submit(new Callable<List<List<Class<?>>>>() {
+                    @Override
+                    public List<List<Class<?>>> call() {
+                        return collectScopedClasses(r);
+                    }
+                }));
+            }
+            final List<List<List<Class<?>>>> result = new ArrayList<List<List<Class<?>>>>(reflections.length);
+            for (Future<List<List<Class<?>>>> f : futures)
+                result.add(f.get());
+            return result;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while scanning packages", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException)
+                throw (RuntimeException) e.getCause();
+            throw new IllegalStateException("Scanning packages failed", e.getCause());
+        } finally {
+            executor.shutdown();
         }
     }
 
@@ -554,7 +890,18 @@ public class Jdp {
     static public void runStartups(String prefix) {
         LOGGER.info("Jdp startup phase for {} begins", prefix);
 
-        runStartups(ReflectionsPackageCache.get(prefix));
+        final JdpIndex index = indexFor(prefix);
+        if (index != null) {
+            final Map<Integer, Class<?>> hashedStartups = new HashMap<Integer, Class<?>>();
+            for (JdpIndex.Entry e : index.getStartupClasses(prefix)) {
+                final Class<?> cls = index.loadClass(e);
+                if (!lifecycleBeanSkips.contains(cls))
+                    addStartup(hashedStartups, e.startupOrder, cls);
+            }
+            runStartups(hashedStartups);
+        } else {
+            runStartups(ReflectionsPackageCache.get(prefix));
+        }
 
         LOGGER.info("Jdp startup phase for {} complete", prefix);
     }
@@ -569,67 +916,132 @@ public class Jdp {
                     if (!lifecycleBeanSkips.contains(cls)) {
                         // Startup anno = cls.getDeclaredAnnotation(Startup.class); // Java 1.8 only
                         Startup anno = cls.getAnnotation(Startup.class); // not working
-                        Integer sortValue = anno.value();
-                        Class<?> oldVal = hashedStartups.put(sortValue, cls);
-                        if (oldVal != null) {
-                            throw new DuplicateStartupSortOrderException(oldVal, cls, sortValue);
-                        }
-                    }
-                }
-                // sort the stuff....
-                SortedMap<Integer, Class<?>> sortedStartups = new TreeMap<Integer, Class<?>>(hashedStartups);
-                // run the methods...
-                for (Map.Entry<Integer, Class<?>> se: sortedStartups.entrySet()) {
-                    final Class<?> cls = se.getValue();
-                    // determine if we want the static or the dynamic variant
-                    final boolean byInstance = StartupOnly.class.isAssignableFrom(cls);
-                    LOGGER.info("Startup stage {}: invoking {} {}.onStartup()", se.getKey(), byInstance ? "dynamic" : "static", cls.getCanonicalName());
-
-                    if (byInstance) {
-                        // dynamic path
-                        StartupOnly bean = null;
-                        try {
-                            bean = (StartupOnly) cls.newInstance();
-                        } catch (Exception e) {
-                            // convert the RuntimeException
-                            throw new StartupBeanInstantiationException(cls, e);
-                        }
-                        // invoke then method
-                        bean.onStartup();
-
-                        // Test if we want shutdown as well. In that case, register the bean.
-                        if (bean instanceof StartupShutdown)
-                            lifecycleBeans.add((StartupShutdown) bean);
-                    } else {
-                        // combined reflection code with invoke
-                        Method startupMethod = null;
-                        try {
-                            startupMethod = cls.getMethod("onStartup");
-                        } catch (Exception e) {
-                            throw new MissingOnStartupMethodException(cls, e);
-                        }
-                        try {
-                            startupMethod.invoke(cls);
-                        } catch (Exception e) {
-                            throw new StartupMethodExecutionException(cls, e);
-                        }
+                        addStartup(hashedStartups, anno.value(), cls);
                     }
                 }
+                runStartups(hashedStartups);
+            }
+        }
+    }
+
+    private static void addStartup(Map<Integer, Class<?>> hashedStartups, Integer sortValue, Class<?> cls) {
+        Class<?> oldVal = hashedStartups.put(sortValue, cls);
+        if (oldVal != null) {
+            throw new DuplicateStartupSortOrderException(oldVal, cls, sortValue);
+        }
+    }
+
+    /** Runs the startup code of the provided classes, in ascending order of their sort value,
+     * or concurrently where permitted, if startupThreads is greater than 1. */
+    private static void runStartups(Map<Integer, Class<?>> hashedStartups) {
+        // sort the stuff....
+        SortedMap<Integer, Class<?>> sortedStartups = new TreeMap<Integer, Class<?>>(hashedStartups);
+        if (startupThreads > 1 && sortedStartups.size() > 1) {
+            new JdpStartupScheduler(sortedStartups, startupThreads, startupPriorityBand).run(lifecycleBeans);
+            return;
+        }
+        // run the methods...
+        for (Map.Entry<Integer, Class<?>> se: sortedStartups.entrySet()) {
+            final StartupShutdown bean = runStartup(se.getKey(), se.getValue());
+            // Test if we want shutdown as well. In that case, register the bean.
+            if (bean != null)
+                lifecycleBeans.add(bean);
+        }
+    }
+
+    /** Runs the startup code of a single class. Returns the bean if it requires a shutdown call, else null. */
+    static StartupShutdown runStartup(Integer order, Class<?> cls) {
+        // determine if we want the static or the dynamic variant
+        final boolean byInstance = StartupOnly.class.isAssignableFrom(cls);
+        LOGGER.info("Startup stage {}: invoking {} {}.onStartup()", order, byInstance ? "dynamic" : "static", cls.getCanonicalName());
+
+        final Object event = JdpFlightRecorder.INSTANCE.beginStartup();
+        final JdpStartupTimer timer = JdpStartupTimer.start(JdpStartupReport.Phase.STARTUP, order + " " + cls.getCanonicalName());
+        boolean failed = true;
+        try {
+            final StartupShutdown bean = invokeStartup(cls, byInstance);
+            failed = false;
+            return bean;
+        } finally {
+            timer.stop();
+            if (event != null)
+                JdpFlightRecorder.INSTANCE.commitStartup(event, cls, order.intValue(), byInstance, failed);
+        }
+    }
 
+    private static StartupShutdown invokeStartup(Class<?> cls, boolean byInstance) {
+        if (byInstance) {
+            // dynamic path
+            StartupOnly bean = null;
+            try {
+                bean = (StartupOnly) JdpFactory.forClass(cls, false).get();
+            } catch (Exception e) {
+                // convert the RuntimeException
+                throw new StartupBeanInstantiationException(cls, e);
             }
+            // invoke then method
+            bean.onStartup();
+
+            return bean instanceof StartupShutdown ? (StartupShutdown) bean : null;
+        } else {
+            // combined reflection code with invoke
+            Method startupMethod = null;
+            try {
+                startupMethod = cls.getMethod("onStartup");
+            } catch (Exception e) {
+                throw new MissingOnStartupMethodException(cls, e);
+            }
+            try {
+                startupMethod.invoke(cls);
+            } catch (Exception e) {
+                throw new StartupMethodExecutionException(cls, e);
+            }
+            return null;
         }
     }
 
-    /** Combined scan / startup along the classpath for all (no)DI relevant annotations. */
+    /** Combined scan / startup along the classpath for all (no)DI relevant annotations.
+     * If a build time index (META-INF/jdp/index) lists classes for the prefix, it is used instead of scanning the classpath. */
     static public void init(String prefix) {
         scanClasses(prefix);
+        instantiateEagerSingletons();
         runStartups(prefix);
+        logStartupReport();
+    }
+
+    /** Combined scan / startup for multiple package prefixes. The prefixes are scanned concurrently if scanThreads is greater than 1. */
+    static public void init(String ... prefixes) {
+        scanClasses(prefixes);
+        instantiateEagerSingletons();
+        for (String prefix : prefixes)
+            runStartups(prefix);
+        logStartupReport();
     }
 
     /** Init for prescanned reflections parameters. */
     static public void init(Reflections ... reflections) {
         scanClasses(reflections);
+        instantiateEagerSingletons();
         runStartups(reflections);
+        logStartupReport();
+    }
+
+    /** Returns the durations of all scan, registration, eager singleton and startup phases since the last reset. */
+    static public JdpStartupReport startupReport() {
+        return JdpStartupTimer.report();
+    }
+
+    /** Returns the constructions recorded since the last reset while traceConstructions has been set. */
+    static public JdpConstructionTrace constructionTrace() {
+        return JdpConstructionTracer.snapshot();
+    }
+
+    /** Logs the full startup report at DEBUG level, else its slowest startupReportEntries entries at INFO level. */
+    private static void logStartupReport() {
+        if (LOGGER.isDebugEnabled())
+            LOGGER.debug("{}", JdpStartupTimer.report());
+        else if (LOGGER.isInfoEnabled() && startupReportEntries > 0)
+            LOGGER.info("{}", JdpStartupTimer.report().toString(startupReportEntries));
     }
 
     static public void skipStartupClass(Class<?> cls) {
@@ -643,12 +1055,17 @@ public class Jdp {
         while (i > 0) {
             StartupShutdown bean = lifecycleBeans.get(--i);
             LOGGER.info("Shutdown: invoking {}.onShutdown()", bean.getClass().getCanonicalName());
+            final Object event = JdpFlightRecorder.INSTANCE.beginShutdown();
+            boolean failed = false;
             try {
                 bean.onShutdown();
             } catch (Exception e) {
                 // we want to ensure that system level shutdown code is executed even if some business functions had issues
                 LOGGER.error("Shutdown problem: " + e.getMessage(), e);
+                failed = true;
             }
+            if (event != null)
+                JdpFlightRecorder.INSTANCE.commitShutdown(event, bean.getClass(), failed);
         }
         lifecycleBeans.clear();         // be nice to duplicate calls of the shutdown method
         LOGGER.info("Jdp shutdown complete");
@@ -659,10 +1076,15 @@ public class Jdp {
         LOGGER.info("Jdp reset called");
         doNotRegisterFor.clear();
         onlyRegisterFor.clear();
+        prefixFilter = newPrefixFilter();
         lifecycleBeans.clear();
         lifecycleBeanSkips.clear();
         typeIndex.clear();
-        allAutodetectedClasses.clear();
-        classesOverriddenBySpecialized.clear();
+        synchronized (pendingEagerSingletons) {
+            pendingEagerSingletons.clear();
+        }
+        resolutionCache.clear();
+        JdpStartupTimer.clear();
+        JdpConstructionTracer.clear();
     }
 }
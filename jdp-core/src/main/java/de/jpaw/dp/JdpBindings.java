@@ -0,0 +1,106 @@
+package de.jpaw.dp;
+
+import java.util.concurrent.Callable;
+
+/** An immutable set of values for structured scopes, which can be established for the duration of a block of code.
+ *
+ * Instances are obtained by Jdp.where() and extended by where(), for example
+ * <pre>
+ *   Jdp.where(Tenant.class, tenant).where(User.class, user).run(task);
+ * </pre>
+ * While the block runs, the current binding frame is an array indexed by the slot of each scope, which shadows the enclosing frame.
+ * Frames are never modified once established, therefore they can be shared with other threads without copying, and nested bindings
+ * cannot affect the enclosing block. The enclosing frame is restored when the block ends.
+ *
+ * Threads started within the block do not inherit the frame. Pools create their threads on demand, and an inherited frame would stay
+ * with such a thread for all later tasks, long after the block has ended. Tasks which need the bindings are run with a JdpContext,
+ * for example by an executor obtained from JdpContext.propagating(), which establishes the frame for the duration of each task only.
+ */
+public final class JdpBindings {
+    private static final Object [] EMPTY_FRAME = new Object [0];
+    private static final ThreadLocal<Object []> currentFrame = new ThreadLocal<Object []>() {
+        @Override
+        protected Object [] initialValue() {
+            return EMPTY_FRAME;
+        }
+    };
+
+    private final JdpBindings previous;     // further bindings, established before this one
+    private final int slot;
+    private final Object value;
+
+    JdpBindings(JdpBindings previous, StructuredScope<?> scope, Object value) {
+        if (value == null)
+            throw new NullPointerException("Cannot bind a null value, omit the binding instead");
+        this.previous = previous;
+        this.slot = scope.slot;
+        this.value = value;
+    }
+
+    /** Returns the value bound to the slot in the current frame, or null. */
+    static Object lookup(int slot) {
+        final Object [] frame = currentFrame.get();
+        return slot < frame.length ? frame[slot] : null;
+    }
+
+    /** Returns the binding frame of the current thread. Frames must not be modified. */
+    static Object [] getFrame() {
+        return currentFrame.get();
+    }
+
+    /** Replaces the binding frame of the current thread and returns the previous one. */
+    static Object [] setFrame(Object [] frame) {
+        final Object [] previousFrame = currentFrame.get();
+        currentFrame.set(frame);
+        return previousFrame;
+    }
+
+    /** Adds a binding for an explicitly created scope. */
+    public <T> JdpBindings where(StructuredScope<T> scope, T value) {
+        return new JdpBindings(this, scope, value);
+    }
+
+    /** Adds a binding for a class of the Structured scope. */
+    public <T> JdpBindings where(Class<T> type, T value) {
+        return new JdpBindings(this, Jdp.getStructuredScope(type), value);
+    }
+
+    /** Creates a new frame, consisting of the enclosing frame and these bindings. For multiple bindings of the same scope, the last one wins. */
+    private Object [] newFrame(Object [] enclosing) {
+        int size = enclosing.length;
+        for (JdpBindings b = this; b != null; b = b.previous) {
+            if (b.slot >= size)
+                size = b.slot + 1;
+        }
+        final Object [] frame = new Object [size];
+        System.arraycopy(enclosing, 0, frame, 0, enclosing.length);
+        fill(frame);
+        return frame;
+    }
+
+    private void fill(Object [] frame) {
+        if (previous != null)
+            previous.fill(frame);
+        frame[slot] = value;
+    }
+
+    /** Runs the block with these bindings. */
+    public void run(Runnable block) {
+        final Object [] enclosing = setFrame(newFrame(currentFrame.get()));
+        try {
+            block.run();
+        } finally {
+            currentFrame.set(enclosing);
+        }
+    }
+
+    /** Runs the block with these bindings and returns its result. */
+    public <R> R call(Callable<R> block) throws Exception {
+        final Object [] enclosing = setFrame(newFrame(currentFrame.get()));
+        try {
+            return block.call();
+        } finally {
+            currentFrame.set(enclosing);
+        }
+    }
+}
@@ -0,0 +1,243 @@
+package de.jpaw.dp;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/** The instantiations recorded while Jdp.traceConstructions was set, as trees of nested constructions per thread.
+ *
+ * A node is created whenever a provider constructs an instance. Constructions triggered by the constructor
+ * (for example via Jdp.getRequired() or injected fields) are its children. Singletons which exist already do not create nodes.
+ *
+ * The critical path is the chain of nested constructions with the largest sum of self times. It is the lower bound of the
+ * time required to construct the roots, even if all independent constructions ran concurrently, therefore its members
+ * are the candidates to optimize, while others can be made eager and constructed in parallel (see @Singleton(eager = true)).
+ */
+public final class JdpConstructionTrace {
+    /** A single construction. */
+    public static final class Node {
+        private final Class<?> type;
+        private final Scopes scope;
+        private final String threadName;
+        private final long startNanos;
+        final Node parent;                                          // only used while recording
+        final List<Node> children = new ArrayList<Node>(4);         // modified by the constructing thread only, until the root is complete
+        long nanos = 0L;
+
+        Node(Class<?> type, Scopes scope, String threadName, long startNanos, Node parent) {
+            this.type = type;
+            this.scope = scope;
+            this.threadName = threadName;
+            this.startNanos = startNanos;
+            this.parent = parent;
+        }
+
+        public Class<?> getType() {
+            return type;
+        }
+
+        public Scopes getScope() {
+            return scope;
+        }
+
+        public String getThreadName() {
+            return threadName;
+        }
+
+        /** Returns the System.nanoTime() at which the construction started. */
+        public long getStartNanos() {
+            return startNanos;
+        }
+
+        /** Returns the duration of the construction, including nested constructions. */
+        public long getNanos() {
+            return nanos;
+        }
+
+        /** Returns the duration of the construction, excluding nested constructions. */
+        public long getSelfNanos() {
+            long self = nanos;
+            for (Node child : children)
+                self -= child.nanos;
+            return self;
+        }
+
+        /** Returns the nested constructions, in the order they have been performed. */
+        public List<Node> getChildren() {
+            return Collections.unmodifiableList(children);
+        }
+
+        /** Returns the length of the critical path starting at this node. */
+        public long getCriticalNanos() {
+            long longest = 0L;
+            for (Node child : children)
+                longest = Math.max(longest, child.getCriticalNanos());
+            return getSelfNanos() + longest;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%10.3f %10.3f  %s (%s)", nanos / 1e6, getSelfNanos() / 1e6, type.getName(), scope.name());
+        }
+    }
+
+    private static final Comparator<Node> BY_START = new Comparator<Node>() {
+        @Override
+        public int compare(Node a, Node b) {
+            return Long.compare(a.getStartNanos(), b.getStartNanos());
+        }
+    };
+
+    private final List<Node> roots;
+    private final int droppedNodes;
+
+    JdpConstructionTrace(List<Node> roots, int droppedNodes) {
+        final List<Node> sorted = new ArrayList<Node>(roots);
+        Collections.sort(sorted, BY_START);
+        this.roots = Collections.unmodifiableList(sorted);
+        this.droppedNodes = droppedNodes;
+    }
+
+    /** Returns the outermost constructions of all threads, in the order they have been started. */
+    public List<Node> getRoots() {
+        return roots;
+    }
+
+    /** Returns the number of constructions which have not been recorded, because the limit of nodes has been reached. */
+    public int getDroppedNodes() {
+        return droppedNodes;
+    }
+
+    /** Returns the nodes of the critical path, starting at the root. */
+    public List<Node> getCriticalPath() {
+        final List<Node> path = new ArrayList<Node>();
+        List<Node> candidates = roots;
+        while (!candidates.isEmpty()) {
+            Node next = null;
+            for (Node n : candidates) {
+                if (next == null || n.getCriticalNanos() > next.getCriticalNanos())
+                    next = n;
+            }
+            path.add(next);
+            candidates = next.children;
+        }
+        return path;
+    }
+
+    /** Returns the length of the critical path. */
+    public long getCriticalPathNanos() {
+        long result = 0L;
+        for (Node n : roots)
+            result = Math.max(result, n.getCriticalNanos());
+        return result;
+    }
+
+    private static void appendTree(StringBuilder b, Node n, int depth) {
+        b.append(String.format("%10.3f %10.3f  ", n.nanos / 1e6, n.getSelfNanos() / 1e6));
+        for (int i = 0; i < depth; ++i)
+            b.append("  ");
+        b.append(n.type.getName()).append(" (").append(n.scope.name()).append(")\n");
+        for (Node child : n.children)
+            appendTree(b, child, depth + 1);
+    }
+
+    /** Returns a readable report of the critical path and the trees of all threads. */
+    @Override
+    public String toString() {
+        final StringBuilder b = new StringBuilder(4000);
+        b.append(String.format("Jdp construction trace, critical path %.3f ms:%n", getCriticalPathNanos() / 1e6));
+        b.append(String.format("%10s %10s  %s%n", "total ms", "self ms", "type"));
+        for (Node n : getCriticalPath())
+            b.append(n).append('\n');
+        final Map<String, List<Node>> rootsByThread = new LinkedHashMap<String, List<Node>>();
+        for (Node n : roots) {
+            List<Node> l = rootsByThread.get(n.threadName);
+            if (l == null) {
+                l = new ArrayList<Node>();
+                rootsByThread.put(n.threadName, l);
+            }
+            l.add(n);
+        }
+        for (Map.Entry<String, List<Node>> e : rootsByThread.entrySet()) {
+            b.append("Thread ").append(e.getKey()).append(":\n");
+            for (Node n : e.getValue())
+                appendTree(b, n, 0);
+        }
+        if (droppedNodes > 0)
+            b.append(droppedNodes).append(" constructions have not been recorded\n");
+        return b.toString();
+    }
+
+    /** Aggregated data of all nodes of a type, for the graph. */
+    private static final class TypeStats {
+        private final Scopes scope;
+        private int count = 0;
+        private long selfNanos = 0L;
+
+        private TypeStats(Scopes scope) {
+            this.scope = scope;
+        }
+    }
+
+    private static void aggregate(Node n, Map<Class<?>, TypeStats> types, Map<String, Integer> edges) {
+        TypeStats stats = types.get(n.type);
+        if (stats == null) {
+            stats = new TypeStats(n.scope);
+            types.put(n.type, stats);
+        }
+        ++stats.count;
+        stats.selfNanos += n.getSelfNanos();
+        for (Node child : n.children) {
+            final String edge = quoteDot(n.type.getName()) + " -> " + quoteDot(child.type.getName());
+            final Integer count = edges.get(edge);
+            edges.put(edge, count == null ? 1 : count + 1);
+            aggregate(child, types, edges);
+        }
+    }
+
+    private static String quoteDot(String s) {
+        return "\"" + s.replace("\"", "\\\"") + "\"";
+    }
+
+    /** Returns the graph of types in DOT format (graphviz). Every type is a node, labeled with its number of constructions
+     * and their total self time, an edge from A to B means that constructing A constructed B. The critical path is colored red. */
+    public String toDot() {
+        final Map<Class<?>, TypeStats> types = new LinkedHashMap<Class<?>, TypeStats>();
+        final Map<String, Integer> edges = new LinkedHashMap<String, Integer>();
+        for (Node n : roots)
+            aggregate(n, types, edges);
+        final Set<Class<?>> criticalTypes = new HashSet<Class<?>>();
+        final Set<String> criticalEdges = new HashSet<String>();
+        Node previous = null;
+        for (Node n : getCriticalPath()) {
+            criticalTypes.add(n.type);
+            if (previous != null)
+                criticalEdges.add(quoteDot(previous.type.getName()) + " -> " + quoteDot(n.type.getName()));
+            previous = n;
+        }
+
+        final StringBuilder b = new StringBuilder(200 + 100 * (types.size() + edges.size()));
+        b.append("digraph jdp {\n    rankdir=LR;\n    node [shape=box];\n");
+        for (Map.Entry<Class<?>, TypeStats> e : types.entrySet()) {
+            final TypeStats stats = e.getValue();
+            b.append("    ").append(quoteDot(e.getKey().getName()));
+            b.append(String.format(" [label=\"%s\\n%s\\n%dx, self %.3f ms\"", e.getKey().getSimpleName(), stats.scope.name(), stats.count, stats.selfNanos / 1e6));
+            if (criticalTypes.contains(e.getKey()))
+                b.append(", color=red");
+            b.append("];\n");
+        }
+        for (Map.Entry<String, Integer> e : edges.entrySet()) {
+            b.append("    ").append(e.getKey()).append(" [label=\"").append(e.getValue()).append('"');
+            if (criticalEdges.contains(e.getKey()))
+                b.append(", color=red, penwidth=2");
+            b.append("];\n");
+        }
+        b.append("}\n");
+        return b.toString();
+    }
+}
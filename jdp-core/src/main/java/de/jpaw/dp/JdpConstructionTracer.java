@@ -0,0 +1,53 @@
+package de.jpaw.dp;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/** Records the nesting of constructions per thread while Jdp.traceConstructions is set. See JdpConstructionTrace. */
+final class JdpConstructionTracer {
+    static final int MAX_NODES = 1000000;  // protects against unbounded growth if tracing stays enabled after initialization
+
+    private static final ThreadLocal<JdpConstructionTrace.Node> current = new ThreadLocal<JdpConstructionTrace.Node>();
+    private static final List<JdpConstructionTrace.Node> roots = new ArrayList<JdpConstructionTrace.Node>(100);
+    private static final AtomicInteger nodeCount = new AtomicInteger();
+
+    private JdpConstructionTracer() {
+    }
+
+    /** Records the start of a construction on the current thread. Returns null if the limit of nodes has been reached. */
+    static JdpConstructionTrace.Node enter(Class<?> type, Scopes scope) {
+        if (nodeCount.incrementAndGet() > MAX_NODES)
+            return null;
+        final JdpConstructionTrace.Node node = new JdpConstructionTrace.Node(type, scope, Thread.currentThread().getName(), System.nanoTime(), current.get());
+        current.set(node);
+        return node;
+    }
+
+    /** Records the end of the construction, which must be the innermost one of the current thread. */
+    static void exit(JdpConstructionTrace.Node node) {
+        node.nanos = System.nanoTime() - node.getStartNanos();
+        if (node.parent != null) {
+            current.set(node.parent);
+            node.parent.children.add(node);
+        } else {
+            current.remove();
+            synchronized (roots) {
+                roots.add(node);
+            }
+        }
+    }
+
+    static JdpConstructionTrace snapshot() {
+        synchronized (roots) {
+            return new JdpConstructionTrace(roots, Math.max(0, nodeCount.get() - MAX_NODES));
+        }
+    }
+
+    static void clear() {
+        synchronized (roots) {
+            roots.clear();
+            nodeCount.set(0);
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package de.jpaw.dp;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+
+/** A snapshot of the Jdp context of a thread, which can be attached to another thread for the duration of a task.
+ *
+ * The context consists of the values of the thread bound scopes (ThreadScope, JdpThreadLocal, JdpThreadLocalStrict)
+ * populated by the capturing thread, and its bindings of structured scopes. Only populated scopes are captured, therefore
+ * the cost of capturing and attaching is proportional to the number of scopes in use.
+ *
+ * While the task runs, the captured values are shared with the capturing thread. This is intended for context objects
+ * (tenant, user, request data). Instances of PerThread classes exist per thread because they are not thread safe,
+ * therefore they are only captured on explicit request, and tasks get their own instances otherwise.
+ * Tasks must not call Jdp.clearThreadContext(), because that would close instances owned by the capturing thread.
+ */
+public final class JdpContext {
+    private final ThreadBoundScope<Object> [] scopes;
+    private final Object [] values;
+    private final Object [] frame;      // bindings of structured scopes
+
+    private JdpContext(ThreadBoundScope<Object> [] scopes, Object [] values, Object [] frame) {
+        this.scopes = scopes;
+        this.values = values;
+        this.frame = frame;
+    }
+
+    /** Captures the context of the current thread, without the instances of PerThread classes. */
+    public static JdpContext capture() {
+        return capture(false);
+    }
+
+    /** Captures the context of the current thread. The instances of PerThread classes are shared with the tasks only if includePerThread is set,
+     * which is safe only if the capturing thread does not use them while the tasks run. */
+    public static JdpContext capture(boolean includePerThread) {
+        final ThreadBoundScope<?> [] populated = JdpThreadContext.getPopulated();
+        final List<ThreadBoundScope<Object>> scopes = new ArrayList<ThreadBoundScope<Object>>(populated.length);
+        for (ThreadBoundScope<?> scope : populated) {
+            if (includePerThread || !(scope instanceof ThreadScopeWithDelegate))
+                scopes.add((ThreadBoundScope<Object>) scope);
+        }
+        final Object [] values = new Object [scopes.size()];
+        for (int i = 0; i < values.length; ++i)
+            values[i] = scopes.get(i).peek();
+        return new JdpContext(scopes.toArray(new ThreadBoundScope [values.length]), values, JdpBindings.getFrame());
+    }
+
+    /** Returns an executor which runs all tasks in the context of the thread which submitted them, without the instances of PerThread classes. */
+    public static ExecutorService propagating(ExecutorService delegate) {
+        return new JdpContextExecutor(delegate, false);
+    }
+
+    /** Returns an executor which runs all tasks in the context of the thread which submitted them, see capture(boolean). */
+    public static ExecutorService propagating(ExecutorService delegate, boolean includePerThread) {
+        return new JdpContextExecutor(delegate, includePerThread);
+    }
+
+    /** Attaches this context to the current thread and returns the values it replaced. */
+    private Object [] attach() {
+        final Object [] previous = new Object [scopes.length + 1];
+        for (int i = 0; i < scopes.length; ++i) {
+            previous[i] = scopes[i].peek();
+            scopes[i].restore(values[i]);
+        }
+        previous[scopes.length] = JdpBindings.setFrame(frame);
+        return previous;
+    }
+
+    /** Restores the values replaced by attach(), in reverse order. */
+    private void detach(Object [] previous) {
+        JdpBindings.setFrame((Object []) previous[scopes.length]);
+        for (int i = scopes.length - 1; i >= 0; --i)
+            scopes[i].restore(previous[i]);
+    }
+
+    /** Runs the task in this context. */
+    public void run(Runnable task) {
+        final Object [] previous = attach();
+        try {
+            task.run();
+        } finally {
+            detach(previous);
+        }
+    }
+
+    /** Runs the task in this context and returns its result. */
+    public <V> V call(Callable<V> task) throws Exception {
+        final Object [] previous = attach();
+        try {
+            return task.call();
+        } finally {
+            detach(previous);
+        }
+    }
+
+    /** Returns a task which runs the given one in this context. */
+    public Runnable wrap(final Runnable task) {
+        return new Runnable() {
+            @Override
+            public void run() {
+                JdpContext.this.run(task);
+            }
+        };
+    }
+
+    /** Returns a task which runs the given one in this context. */
+    public <V> Callable<V> wrap(final Callable<V> task) {
+        return new Callable<V>() {
+            @Override
+            public V call() throws Exception {
+                return JdpContext.this.call(task);
+            }
+        };
+    }
+
+    /** Returns the number of captured thread bound scopes. */
+    public int size() {
+        return scopes.length;
+    }
+}
@@ -0,0 +1,48 @@
+package de.jpaw.dp;
+
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/** Executor which captures the Jdp context of the submitting thread for every task, and attaches it while the task runs.
+ * All submission methods end up in execute(), which runs in the submitting thread, therefore the context is captured at submit time. */
+final class JdpContextExecutor extends AbstractExecutorService {
+    private final ExecutorService delegate;
+    private final boolean includePerThread;
+
+    JdpContextExecutor(ExecutorService delegate, boolean includePerThread) {
+        this.delegate = delegate;
+        this.includePerThread = includePerThread;
+    }
+
+    @Override
+    public void execute(Runnable command) {
+        delegate.execute(JdpContext.capture(includePerThread).wrap(command));
+    }
+
+    @Override
+    public void shutdown() {
+        delegate.shutdown();
+    }
+
+    @Override
+    public List<Runnable> shutdownNow() {
+        return delegate.shutdownNow();
+    }
+
+    @Override
+    public boolean isShutdown() {
+        return delegate.isShutdown();
+    }
+
+    @Override
+    public boolean isTerminated() {
+        return delegate.isTerminated();
+    }
+
+    @Override
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        return delegate.awaitTermination(timeout, unit);
+    }
+}
@@ -3,11 +3,14 @@ package de.jpaw.dp;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import de.jpaw.dp.exceptions.CannotCreateProviderException;
+import de.jpaw.dp.exceptions.CyclicDependencyException;
 
 /** The JdpEntry stores information about a specific class or instance.
  *
@@ -32,27 +35,33 @@ final public class JdpEntry<T> implements Provider<T> {
     public final boolean specializes;   // autodetected, if @Specializes annotation is set, the entry will override any parent class
     public final Scopes myScope;
     public final Class<T> actualType; // the requested type (interface for example)
-    private T instance = null; // if it's a singleton: the unique instance (not null once it has been called the first time)
+    private volatile T instance = null; // if it's a singleton: the unique instance (not null once it has been called the first time)
+    private volatile Thread constructingThread = null;  // for lazy singletons: the thread currently running the constructor, used to detect cycles
     private final Provider<T> customScope;
 //    private boolean overriddenBySpecialized = false;
 
-    private static class DelegateProvider<T> implements Provider<T> {
-        private final Class<T> cls;
-        DelegateProvider(Class<T> cls) {
-            this.cls = cls;
-        }
+    private volatile Provider<T> factory = null;    // creates new instances of actualType, initialized upon first use
+
+    /** The singleton entries threads are currently waiting for, to detect cycles spanning multiple threads. */
+    private static final ConcurrentMap<Thread, JdpEntry<?>> waitingFor = new ConcurrentHashMap<Thread, JdpEntry<?>>();
+    private static final int MAX_WAIT_CHAIN = 1000;     // protects against chains which change while they are followed
+
+    /** Provider for the PerThread scope, which creates a new instance for every thread. */
+    private class DelegateProvider implements Provider<T> {
         @Override
         public T get() {
             try {
                 if (LOGGER.isDebugEnabled()) {
-                    LOGGER.debug("Instantiating THREAD instance of {}", cls.getCanonicalName());
-                    T instance1 = cls.newInstance();
-                    LOGGER.debug("Instantiation of THREAD instance {} done", cls.getCanonicalName());
+                    LOGGER.debug("Instantiating THREAD instance of {}", actualType.getCanonicalName());
+                    T instance1 = newInstance();
+                    LOGGER.debug("Instantiation of THREAD instance {} done", actualType.getCanonicalName());
                     return instance1;
                 }
-                return cls.newInstance();
+                return newInstance();
+            } catch (CyclicDependencyException e) {
+                throw e;    // abort the whole chain of nested constructions, same as in get()
             } catch (Exception e) {
-                LOGGER.error("Cannot instantiate class {}: {}", cls.getCanonicalName(), e.getMessage());
+                LOGGER.error("Cannot instantiate class {}: {}", actualType.getCanonicalName(), e.getMessage());
                 return null;
             }
         }
@@ -81,13 +90,19 @@ final public class JdpEntry<T> implements Provider<T> {
     }
 
 
+    /** Creates the scope for PerThread classes, according to the policy for virtual threads. */
+    private final Provider<T> getThreadScope(Class<T> actualType) {
+        final PerThread anno = actualType.getAnnotation(PerThread.class);
+        if (anno != null && anno.virtualThreads() == VirtualThreadPolicy.POOLED)
+            return new PooledThreadScope<T>(new DelegateProvider(), anno.poolSize());
+        return new ThreadScopeWithDelegate<T>(new DelegateProvider());
+    }
+
     private final CustomScope<T> getCustomProvider(Class<T> actualType) {
         Class<? extends CustomScope<?>> myScopeClass = actualType.getAnnotation(ScopeWithCustomProvider.class).value();
         try {
-            return (CustomScope<T>) myScopeClass.newInstance();
-        } catch (InstantiationException e) {
-            throw new CannotCreateProviderException(actualType, myScopeClass, e);
-        } catch (IllegalAccessException e) {
+            return (CustomScope<T>) JdpFactory.forClass(myScopeClass, false).get();
+        } catch (Exception e) {
             throw new CannotCreateProviderException(actualType, myScopeClass, e);
         }
     }
@@ -113,8 +128,9 @@ final public class JdpEntry<T> implements Provider<T> {
         this.isFallback     = actualType.getAnnotation(Fallback.class) != null;
         this.specializes    = actualType.getAnnotation(Specializes.class) != null;
         this.customScope    = myScope == Scopes.PER_THREAD
-                ? new ThreadScopeWithDelegate(new DelegateProvider(actualType))
-                : myScope == Scopes.CUSTOM ? getCustomProvider(actualType) : null;
+                ? getThreadScope(actualType)
+                : myScope == Scopes.CUSTOM ? getCustomProvider(actualType)
+                : myScope == Scopes.STRUCTURED ? new StructuredScope<T>(actualType) : null;
     }
 
     /** create a new entry for a manual assignment. */
@@ -130,35 +146,135 @@ final public class JdpEntry<T> implements Provider<T> {
         this.customScope    = customProvider;
     }
 
+    /** Returns the scope of PER_THREAD, CUSTOM and STRUCTURED entries, else null. */
+    Provider<T> getCustomScope() {
+        return customScope;
+    }
+
+    /** Constructs a new instance of actualType, as a node of the construction trace if Jdp.traceConstructions is set. */
+    private T newInstance() {
+        if (!Jdp.traceConstructions)
+            return construct();
+        final JdpConstructionTrace.Node node = JdpConstructionTracer.enter(actualType, myScope);
+        try {
+            return construct();
+        } finally {
+            if (node != null)
+                JdpConstructionTracer.exit(node);
+        }
+    }
+
+    /** Constructs a new instance of actualType, and records it if metrics are enabled or a flight recording is running. */
+    private T construct() {
+        final boolean recorded = JdpFlightRecorder.AVAILABLE && JdpFlightRecorder.INSTANCE.isInstantiationEnabled();
+        if (!JdpMetricsRecorder.ENABLED && !recorded)
+            return factory().get();
+        final Object event = recorded ? JdpFlightRecorder.INSTANCE.beginInstantiation() : null;
+        final long start = System.nanoTime();
+        final T result = factory().get();
+        if (JdpMetricsRecorder.ENABLED)
+            JdpMetricsRecorder.instantiated(actualType, myScope, System.nanoTime() - start);
+        if (event != null)
+            JdpFlightRecorder.INSTANCE.commitInstantiation(event, actualType, myScope, qualifiers);
+        return result;
+    }
+
+    /** Returns the factory for new instances of actualType. Creating it performs all reflection once. */
+    private Provider<T> factory() {
+        Provider<T> f = factory;
+        if (f == null) {
+            f = JdpFactory.forClass(actualType, myScope == Scopes.DEPENDENT || myScope == Scopes.PER_THREAD);
+            factory = f;
+        }
+        return f;
+    }
+
+    /** Returns true if waiting for the construction in progress in owner would close a cycle of threads waiting for each other. */
+    private static boolean waitWouldDeadlock(Thread owner) {
+        final Thread me = Thread.currentThread();
+        for (int depth = 0; owner != null && depth < MAX_WAIT_CHAIN; ++depth) {
+            if (owner == me)
+                return true;
+            final JdpEntry<?> awaited = waitingFor.get(owner);
+            if (awaited == null)
+                return false;
+            final Thread next = awaited.constructingThread;
+            if (next == owner)
+                return false;       // owner has just obtained the lock, it is not waiting
+            owner = next;
+        }
+        return false;
+    }
+
+    /** Constructs the singleton instance, unless another thread did it already.
+     * Concurrent callers wait for the single construction in progress. A thread which requests the instance again
+     * while constructing it gets a CyclicDependencyException.
+     * For cycles spanning multiple threads (A requires B on one thread, B requires A on another one), as they occur when
+     * eager singletons are constructed concurrently, at least one thread which would close the cycle gets the exception.
+     * Threads register what they wait for before they inspect the owner, therefore of two threads closing a cycle concurrently,
+     * at least the second one sees the registration of the first one. */
+    private T createSingleton() {
+        final Thread me = Thread.currentThread();
+        if (constructingThread == me)
+            throw new CyclicDependencyException(actualType);
+        waitingFor.put(me, this);
+        try {
+            if (waitWouldDeadlock(constructingThread))
+                throw new CyclicDependencyException(actualType);
+            synchronized (this) {
+                waitingFor.remove(me);
+                T current = instance;
+                if (current == null) {
+                    constructingThread = me;
+                    try {
+                        LOGGER.debug("Instantiating SINGLETON {}", actualType.getCanonicalName());
+                        current = newInstance();
+                        LOGGER.debug("Instantiation of SINGLETON {} done", actualType.getCanonicalName());
+                        instance = current;
+                    } finally {
+                        constructingThread = null;
+                    }
+                }
+                return current;
+            }
+        } finally {
+            waitingFor.remove(me);
+        }
+    }
+
+    /** Returns the singleton instance, constructing it if required. Unlike get(), a failed construction is thrown and not logged.
+     * Used for the construction of eager singletons, whose failures are reported by Jdp.init(). */
+    T getSingleton() {
+        final T current = instance;
+        return current != null ? current : createSingleton();
+    }
+
     @Override
     public T get() {
         try {
             switch (myScope) {
-            case EAGER_SINGLETON:
-                return instance;
+            case EAGER_SINGLETON:   // autodetected eager singletons are constructed by Jdp.instantiateEagerSingletons(), or upon first use before that
             case LAZY_SINGLETON:
-                if (instance != null)
-                    return instance;
-                else {
-                    // TODO: lock! But then be aware of deadlocks / cycles!
-                    LOGGER.debug("Instantiating SINGLETON {}", actualType.getCanonicalName());
-                    instance = actualType.newInstance();
-                    LOGGER.debug("Instantiation of SINGLETON {} done", actualType.getCanonicalName());
-                    return instance;
-                }
+                final T current = instance;
+                return current != null ? current : createSingleton();
             case DEPENDENT:
                 // always return a new instance
                 if (LOGGER.isDebugEnabled()) {
                     LOGGER.debug("Instantiating DEPENDENT {}", actualType.getCanonicalName());
-                    T instance1 = actualType.newInstance();
+                    T instance1 = newInstance();
                     LOGGER.debug("Instantiation of DEPENDENT {} done", actualType.getCanonicalName());
                     return instance1;
                 }
-                return actualType.newInstance();
+                return newInstance();
             case PER_THREAD:
             case CUSTOM:
+            case STRUCTURED:
+                if (JdpMetricsRecorder.ENABLED)
+                    JdpMetricsRecorder.scopeGet(actualType);
                 return customScope.get();
             }
+        } catch (CyclicDependencyException e) {
+            throw e;    // abort the whole chain of nested constructions
         } catch (Exception e) {
             LOGGER.error("Exception retrieving instance of {} of scope {}: {}: {}",
                         actualType.getCanonicalName(), myScope.name(), e.getClass().getSimpleName(), e.getMessage());
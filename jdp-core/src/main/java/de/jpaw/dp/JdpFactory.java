@@ -0,0 +1,108 @@
+package de.jpaw.dp;
+
+import java.lang.invoke.CallSite;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Modifier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import de.jpaw.dp.exceptions.InstantiationFailedException;
+
+/** Creates providers which construct new instances of a class via its no-args constructor.
+ *
+ * Constructing the factory performs all reflection and access checks once, subsequent invocations of get()
+ * call the constructor directly. For classes which are instantiated frequently, a Provider implementation is spun
+ * via LambdaMetafactory, which the JIT can inline like a regular new(). For classes instantiated only once
+ * (singletons, startup beans), this would not pay off, and a constructor MethodHandle is used instead.
+ */
+final class JdpFactory {
+    private static final Logger LOGGER = LoggerFactory.getLogger(JdpFactory.class);
+    private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+    private static final MethodType FACTORY_TYPE = MethodType.methodType(Provider.class);
+    private static final MethodType GET_TYPE = MethodType.methodType(Object.class);
+
+    private JdpFactory() {
+    }
+
+    /** Provider which invokes a constructor MethodHandle. */
+    private static final class MethodHandleProvider<T> implements Provider<T> {
+        private final Class<T> cls;
+        private final MethodHandle constructor;
+
+        MethodHandleProvider(Class<T> cls, MethodHandle constructor) {
+            this.cls = cls;
+            this.constructor = constructor.asType(GET_TYPE);
+        }
+
+        @Override
+        public T get() {
+            try {
+                return (T) constructor.invokeExact();
+            } catch (RuntimeException e) {
+                throw e;
+            } catch (Error e) {
+                throw e;
+            } catch (Throwable e) {
+                throw new InstantiationFailedException(cls, e);     // checked exception thrown by the constructor
+            }
+        }
+    }
+
+    private static boolean isPublic(Class<?> cls) {
+        for (Class<?> c = cls; c != null; c = c.getEnclosingClass()) {
+            if (!Modifier.isPublic(c.getModifiers()))
+                return false;
+        }
+        return true;
+    }
+
+    /** Returns true if the constructor declares checked exceptions. A spun Provider would throw them unwrapped, therefore they require a MethodHandleProvider. */
+    private static boolean throwsChecked(Constructor<?> constructor) {
+        for (Class<?> e : constructor.getExceptionTypes()) {
+            if (!RuntimeException.class.isAssignableFrom(e) && !Error.class.isAssignableFrom(e))
+                return true;
+        }
+        return false;
+    }
+
+    /** Spun classes are defined in the class loader of Jdp, therefore they can only be used if cls is visible from there. */
+    private static boolean isVisibleToJdp(Class<?> cls) {
+        try {
+            return Class.forName(cls.getName(), false, JdpFactory.class.getClassLoader()) == cls;
+        } catch (ClassNotFoundException e) {
+            return false;
+        }
+    }
+
+    /** Returns a provider which creates a new instance of cls for every invocation of get().
+     *
+     * @param cls the class to instantiate. It must have a no-args constructor.
+     * @param frequent true if many instances will be created, which justifies spinning a dedicated class.
+     */
+    static <T> Provider<T> forClass(Class<T> cls, boolean frequent) {
+        final Constructor<T> constructor;
+        final MethodHandle handle;
+        try {
+            constructor = cls.getDeclaredConstructor();
+            if (!isPublic(cls) || !Modifier.isPublic(constructor.getModifiers()))
+                constructor.setAccessible(true);
+            handle = LOOKUP.unreflectConstructor(constructor);
+        } catch (Exception e) {
+            throw new InstantiationFailedException(cls, e);
+        }
+        if (frequent && isPublic(cls) && Modifier.isPublic(constructor.getModifiers()) && !throwsChecked(constructor) && isVisibleToJdp(cls)) {
+            try {
+                final CallSite site = LambdaMetafactory.metafactory(LOOKUP, "get", FACTORY_TYPE, GET_TYPE, handle, MethodType.methodType(cls));
+                return (Provider<T>) site.getTarget().invokeExact();
+            } catch (Throwable e) {
+                LOGGER.debug("Cannot spin factory for {}, using a MethodHandle: {}", cls.getCanonicalName(), e.getMessage());
+            }
+        }
+        return new MethodHandleProvider<T>(cls, handle);
+    }
+}
@@ -0,0 +1,62 @@
+package de.jpaw.dp;
+
+import java.util.List;
+
+/** Emits the Java Flight Recorder events of Jdp.
+ *
+ * This class does nothing. The events are emitted by the subclass de.jpaw.dp.jfr.JdpEventRecorder, which is loaded by name
+ * and only if the JVM provides the jdk.jfr module, therefore Jdp itself does not depend on jdk.jfr and runs on Java 8 as well.
+ * The begin methods return the started event as an Object (null if nothing is recorded), which is passed to the commit method.
+ */
+public class JdpFlightRecorder {
+    private static final String IMPLEMENTATION = "de.jpaw.dp.jfr.JdpEventRecorder";
+
+    static final JdpFlightRecorder INSTANCE = load();
+
+    /** True if events can be recorded. This is a static final field, the JIT removes all guarded calls if it is false. */
+    static final boolean AVAILABLE = INSTANCE.getClass() != JdpFlightRecorder.class;
+
+    protected JdpFlightRecorder() {
+    }
+
+    private static JdpFlightRecorder load() {
+        try {
+            return (JdpFlightRecorder) Class.forName(IMPLEMENTATION, true, JdpFlightRecorder.class.getClassLoader()).getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | RuntimeException | LinkageError e) {
+            return new JdpFlightRecorder();     // no jdk.jfr in this JVM
+        }
+    }
+
+    /** Returns true if a running recording has the instantiation event enabled. */
+    protected boolean isInstantiationEnabled() {
+        return false;
+    }
+
+    protected Object beginInstantiation() {
+        return null;
+    }
+
+    protected void commitInstantiation(Object event, Class<?> type, Scopes scope, List<String> qualifiers) {
+    }
+
+    protected Object beginScan() {
+        return null;
+    }
+
+    protected void commitScan(Object event, String packagePrefix, String source, int classes) {
+    }
+
+    protected Object beginStartup() {
+        return null;
+    }
+
+    protected void commitStartup(Object event, Class<?> type, int stage, boolean dynamic, boolean failed) {
+    }
+
+    protected Object beginShutdown() {
+        return null;
+    }
+
+    protected void commitShutdown(Object event, Class<?> type, boolean failed) {
+    }
+}
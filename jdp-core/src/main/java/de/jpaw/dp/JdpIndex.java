@@ -0,0 +1,267 @@
+package de.jpaw.dp;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.JarURLConnection;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.URLConnection;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import de.jpaw.dp.exceptions.IndexedClassNotFoundException;
+
+/** The JdpIndex holds the contents of all META-INF/jdp/index resources, as written by the jdp-processor at build time.
+ *
+ * Every line of an index describes one class:
+ * <pre>
+ *   {scope} {binary class name}
+ *   STARTUP {order} {binary class name}
+ *   PACKAGE {package name} {number of top level classes}
+ * </pre>
+ * The index is read once per class loader and cached, because it does not change at runtime.
+ *
+ * An index only describes the classes compiled together with it. A package prefix is therefore only covered by the index
+ * if every class path root which contains the prefix has an index, and that index lists all packages of the prefix found in the root,
+ * with the same number of top level classes. Otherwise (a module built without the processor, or a partial index written by an
+ * incremental build), the prefix is scanned.
+ */
+final class JdpIndex {
+    private static final Logger LOGGER = LoggerFactory.getLogger(JdpIndex.class);
+    static final String INDEX_RESOURCE = "META-INF/jdp/index";
+    static final String STARTUP = "STARTUP";
+    static final String PACKAGE = "PACKAGE";
+
+    /** A single line of the index. */
+    static final class Entry {
+        final String classname;
+        final Scopes scope;         // null for startup entries
+        final int startupOrder;
+
+        private Entry(String classname, Scopes scope, int startupOrder) {
+            this.classname = classname;
+            this.scope = scope;
+            this.startupOrder = startupOrder;
+        }
+    }
+
+    private static volatile JdpIndex cached = null;
+
+    private final ClassLoader loader;
+    private final List<Entry> scopedClasses;
+    private final List<Entry> startupClasses;
+    private final Map<String, Map<String, Integer>> packagesByRoot;    // class path root => package => number of top level classes
+    private final ConcurrentMap<String, Boolean> coverage = new ConcurrentHashMap<String, Boolean>(16);
+
+    private JdpIndex(ClassLoader loader, List<Entry> scopedClasses, List<Entry> startupClasses, Map<String, Map<String, Integer>> packagesByRoot) {
+        this.loader = loader;
+        this.scopedClasses = scopedClasses;
+        this.startupClasses = startupClasses;
+        this.packagesByRoot = packagesByRoot;
+    }
+
+    private static ClassLoader currentLoader() {
+        final ClassLoader loader = Thread.currentThread().getContextClassLoader();
+        return loader != null ? loader : Jdp.class.getClassLoader();
+    }
+
+    /** Returns the index for the current class loader, or null if no index resource exists. */
+    static JdpIndex get() {
+        final ClassLoader loader = currentLoader();
+        JdpIndex index = cached;
+        if (index == null || index.loader != loader) {
+            index = load(loader);
+            cached = index;
+        }
+        return index.packagesByRoot.isEmpty() ? null : index;
+    }
+
+    private static JdpIndex load(ClassLoader loader) {
+        final List<Entry> scopedClasses = new ArrayList<Entry>(1000);
+        final List<Entry> startupClasses = new ArrayList<Entry>(40);
+        final Map<String, Map<String, Integer>> packagesByRoot = new HashMap<String, Map<String, Integer>>();
+        try {
+            final Enumeration<URL> resources = loader.getResources(INDEX_RESOURCE);
+            while (resources.hasMoreElements()) {
+                final URL url = resources.nextElement();
+                LOGGER.debug("Reading Jdp index {}", url);
+                final String root = url.toString().substring(0, url.toString().length() - INDEX_RESOURCE.length());
+                final Map<String, Integer> packages = new HashMap<String, Integer>();
+                final BufferedReader r = new BufferedReader(new InputStreamReader(url.openStream(), StandardCharsets.UTF_8));
+                try {
+                    String line;
+                    while ((line = r.readLine()) != null) {
+                        line = line.trim();
+                        if (line.length() == 0 || line.charAt(0) == '#')
+                            continue;
+                        final String [] fields = line.split(" ");
+                        if (fields.length == 3 && STARTUP.equals(fields[0])) {
+                            startupClasses.add(new Entry(fields[2], null, Integer.parseInt(fields[1])));
+                        } else if (fields.length == 3 && PACKAGE.equals(fields[0])) {
+                            packages.put(fields[1], Integer.valueOf(fields[2]));
+                        } else if (fields.length == 2) {
+                            scopedClasses.add(new Entry(fields[1], Scopes.valueOf(fields[0]), 0));
+                        } else {
+                            LOGGER.warn("Ignoring malformed line in Jdp index {}: {}", url, line);
+                        }
+                    }
+                } finally {
+                    r.close();
+                }
+                packagesByRoot.put(root, packages);
+            }
+        } catch (IOException e) {
+            LOGGER.error("Cannot read Jdp index, falling back to classpath scanning: {}", e.getMessage());
+            scopedClasses.clear();
+            startupClasses.clear();
+            packagesByRoot.clear();
+        }
+        return new JdpIndex(loader, Collections.unmodifiableList(scopedClasses), Collections.unmodifiableList(startupClasses), packagesByRoot);
+    }
+
+    private static List<Entry> filter(List<Entry> entries, String prefix) {
+        final List<Entry> result = new ArrayList<Entry>(entries.size());
+        for (Entry e : entries) {
+            if (e.classname.startsWith(prefix))
+                result.add(e);
+        }
+        return result;
+    }
+
+    /** Returns true if the index describes all classes of the given package prefix. The result is cached. */
+    boolean covers(String prefix) {
+        Boolean covered = coverage.get(prefix);
+        if (covered == null) {
+            covered = Boolean.valueOf(checkCoverage(prefix));
+            coverage.put(prefix, covered);
+        }
+        return covered.booleanValue();
+    }
+
+    private boolean checkCoverage(String prefix) {
+        final String path = prefix.replace('.', '/');
+        try {
+            final Enumeration<URL> urls = loader.getResources(path);
+            if (!urls.hasMoreElements())
+                return recordsAnyPackage(prefix);      // archive without directory entries: cannot verify, but a scan would not find anything either
+            while (urls.hasMoreElements()) {
+                final URL url = urls.nextElement();
+                String s = url.toString();
+                if (s.endsWith("/"))
+                    s = s.substring(0, s.length() - 1);
+                final String root = s.substring(0, s.length() - path.length());
+                final Map<String, Integer> recorded = packagesByRoot.get(root);
+                if (recorded == null) {
+                    if (recordsAnyPackage(prefix))
+                        LOGGER.warn("Jdp index does not cover {}: {} has been built without index, scanning the package prefix", prefix, root);
+                    return false;
+                }
+                final Map<String, Integer> found = countClasses(url, path);
+                if (found == null) {
+                    LOGGER.debug("Cannot list the classes of {} in {}, scanning the package prefix", prefix, root);
+                    return false;
+                }
+                for (Map.Entry<String, Integer> e : found.entrySet()) {
+                    if (!e.getValue().equals(recorded.get(e.getKey()))) {
+                        LOGGER.warn("Jdp index of {} does not cover package {} ({} of {} classes indexed), scanning the package prefix {}",
+                          root, e.getKey(), recorded.get(e.getKey()), e.getValue(), prefix);
+                        return false;
+                    }
+                }
+            }
+            return true;
+        } catch (IOException e) {
+            LOGGER.warn("Cannot verify the Jdp index for {}, scanning the package prefix: {}", prefix, e.getMessage());
+            return false;
+        }
+    }
+
+    private boolean recordsAnyPackage(String prefix) {
+        for (Map<String, Integer> packages : packagesByRoot.values()) {
+            for (String pkg : packages.keySet()) {
+                if (pkg.startsWith(prefix))
+                    return true;
+            }
+        }
+        return false;
+    }
+
+    /** Counts the top level classes per package below the directory given by url, or returns null for unsupported URLs. */
+    private static Map<String, Integer> countClasses(URL url, String path) throws IOException {
+        final Map<String, Integer> counts = new HashMap<String, Integer>();
+        if ("file".equals(url.getProtocol())) {
+            try {
+                countClasses(new File(url.toURI()), path.replace('/', '.'), counts);
+            } catch (URISyntaxException e) {
+                return null;
+            }
+            return counts;
+        }
+        final URLConnection connection = url.openConnection();
+        if (!(connection instanceof JarURLConnection))
+            return null;
+        final JarFile jar = ((JarURLConnection) connection).getJarFile();      // shared with the class loader, must not be closed
+        final Enumeration<JarEntry> entries = jar.entries();
+        while (entries.hasMoreElements()) {
+            final String name = entries.nextElement().getName();
+            if (name.startsWith(path + "/") && isTopLevelClass(name.substring(name.lastIndexOf('/') + 1)))
+                count(counts, name.substring(0, name.lastIndexOf('/')).replace('/', '.'));
+        }
+        return counts;
+    }
+
+    private static void countClasses(File dir, String pkg, Map<String, Integer> counts) {
+        final File [] files = dir.listFiles();
+        if (files == null)
+            return;
+        for (File f : files) {
+            if (f.isDirectory())
+                countClasses(f, pkg + "." + f.getName(), counts);
+            else if (isTopLevelClass(f.getName()))
+                count(counts, pkg);
+        }
+    }
+
+    private static boolean isTopLevelClass(String filename) {
+        return filename.endsWith(".class") && filename.indexOf('$') < 0
+          && !filename.equals("package-info.class") && !filename.equals("module-info.class");
+    }
+
+    private static void count(Map<String, Integer> counts, String pkg) {
+        final Integer n = counts.get(pkg);
+        counts.put(pkg, n == null ? 1 : n + 1);
+    }
+
+    /** Returns the classes annotated with a scope annotation, for the given package prefix. */
+    List<Entry> getScopedClasses(String prefix) {
+        return filter(scopedClasses, prefix);
+    }
+
+    /** Returns the classes annotated with @Startup, for the given package prefix. */
+    List<Entry> getStartupClasses(String prefix) {
+        return filter(startupClasses, prefix);
+    }
+
+    /** Loads a class listed in the index, without initializing it. */
+    Class<?> loadClass(Entry e) {
+        try {
+            return Class.forName(e.classname, false, loader);
+        } catch (ClassNotFoundException ex) {
+            throw new IndexedClassNotFoundException(e.classname, ex);
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package de.jpaw.dp;
+
+import de.jpaw.dp.exceptions.NoSuitableImplementationException;
+import de.jpaw.dp.exceptions.NoSuitableProviderException;
+
+/** A precomputed handle for a type and qualifier, obtained by Jdp.key().
+ *
+ * The provider is resolved upon first use and kept together with the registry epoch it has been resolved in.
+ * Subsequent calls only compare the epoch and invoke the provider directly, without any map lookups.
+ * After any rebinding (or reset), the epoch differs, and the provider is resolved again.
+ * Instances are thread safe and intended to be held in static final fields.
+ */
+public final class JdpKey<T> implements Provider<T> {
+    /** A resolved provider (null if there is none), and the epoch it is valid for. */
+    private static final class Resolution<T> {
+        private final int epoch;
+        private final Provider<T> provider;
+
+        private Resolution(int epoch, Provider<T> provider) {
+            this.epoch = epoch;
+            this.provider = provider;
+        }
+    }
+
+    private final Class<T> type;
+    private final String qualifier;
+    private volatile Resolution<T> resolution = null;
+
+    JdpKey(Class<T> type, String qualifier) {
+        this.type = type;
+        this.qualifier = qualifier;
+    }
+
+    private Provider<T> provider() {
+        Resolution<T> r = resolution;
+        if (r == null || r.epoch != Jdp.resolutionEpoch()) {
+            final int epoch = Jdp.resolutionEpoch();      // read before resolving, a concurrent rebinding then forces another resolution
+            r = new Resolution<T>(epoch, Jdp.getOptionalProvider(type, qualifier));
+            resolution = r;
+            return r.provider;      // the lookup has been recorded by Jdp.getOptionalProvider()
+        }
+        if (JdpMetricsRecorder.ENABLED)
+            JdpMetricsRecorder.lookup(type, qualifier, r.provider);
+        return r.provider;
+    }
+
+    /** Returns an instance, same as Jdp.getRequired(type, qualifier). */
+    @Override
+    public T get() {
+        final Provider<T> p = provider();
+        final T result = p == null ? null : p.get();
+        if (result == null)
+            throw new NoSuitableImplementationException(type, qualifier);
+        return result;
+    }
+
+    /** Returns an instance or null, same as Jdp.getOptional(type, qualifier). */
+    public T getOptional() {
+        final Provider<T> p = provider();
+        return p == null ? null : p.get();
+    }
+
+    /** Returns this key, after checking that a provider exists, same as Jdp.getProvider(type, qualifier).
+     * Used by @Inject(cached = true) for Provider fields, which therefore fail at construction and not on the first get(). */
+    public JdpKey<T> checked() {
+        if (provider() == null)
+            throw new NoSuitableProviderException(type, qualifier);
+        return this;
+    }
+
+    public Class<T> getType() {
+        return type;
+    }
+
+    public String getQualifier() {
+        return qualifier;
+    }
+
+    @Override
+    public String toString() {
+        return qualifier == null ? "JdpKey(" + type.getCanonicalName() + ")" : "JdpKey(" + type.getCanonicalName() + ", " + qualifier + ")";
+    }
+}
@@ -0,0 +1,59 @@
+package de.jpaw.dp;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+/** An immutable snapshot of the usage counters of Jdp, obtained by Jdp.metrics().
+ * Counters are only collected if the JVM has been started with -Djdp.metrics=true, otherwise the snapshot is empty. */
+public final class JdpMetrics {
+    private final boolean enabled;
+    private final List<JdpTypeMetrics> types;
+    private final Map<String, Long> instantiationsByScope;
+
+    JdpMetrics(boolean enabled, List<JdpTypeMetrics> types, Map<String, Long> instantiationsByScope) {
+        this.enabled = enabled;
+        this.types = Collections.unmodifiableList(types);
+        this.instantiationsByScope = Collections.unmodifiableMap(instantiationsByScope);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /** Returns the counters per type, for all types which have been used. */
+    public List<JdpTypeMetrics> getTypes() {
+        return types;
+    }
+
+    /** Returns the number of constructed instances per scope name. */
+    public Map<String, Long> getInstantiationsByScope() {
+        return instantiationsByScope;
+    }
+
+    /** Returns the counters for a type, or null if it has not been used. */
+    public JdpTypeMetrics get(Class<?> type) {
+        for (JdpTypeMetrics t : types) {
+            if (t.getTypeName().equals(type.getName()))
+                return t;
+        }
+        return null;
+    }
+
+    /** Returns up to n types with the most instantiations, in descending order. Types which have not been instantiated are omitted. */
+    public List<JdpTypeMetrics> topInstantiated(int n) {
+        final JdpTypeMetrics [] sorted = types.toArray(new JdpTypeMetrics [types.size()]);
+        Arrays.sort(sorted, new Comparator<JdpTypeMetrics>() {
+            @Override
+            public int compare(JdpTypeMetrics a, JdpTypeMetrics b) {
+                return Long.compare(b.getInstantiations(), a.getInstantiations());
+            }
+        });
+        int count = 0;
+        while (count < n && count < sorted.length && sorted[count].getInstantiations() > 0)
+            ++count;
+        return Arrays.asList(sorted).subList(0, count);
+    }
+}
@@ -0,0 +1,28 @@
+package de.jpaw.dp;
+
+import java.util.List;
+import java.util.Map;
+
+/** MXBean implementation, which takes a snapshot per request. */
+final class JdpMetricsBean implements JdpMetricsMXBean {
+
+    @Override
+    public List<JdpTypeMetrics> getTypes() {
+        return JdpMetricsRecorder.snapshot().getTypes();
+    }
+
+    @Override
+    public Map<String, Long> getInstantiationsByScope() {
+        return JdpMetricsRecorder.snapshot().getInstantiationsByScope();
+    }
+
+    @Override
+    public List<JdpTypeMetrics> topInstantiated(int n) {
+        return JdpMetricsRecorder.snapshot().topInstantiated(n);
+    }
+
+    @Override
+    public void reset() {
+        JdpMetricsRecorder.reset();
+    }
+}
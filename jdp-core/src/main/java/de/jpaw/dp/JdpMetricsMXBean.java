@@ -0,0 +1,19 @@
+package de.jpaw.dp;
+
+import java.util.List;
+import java.util.Map;
+
+/** Management interface of the Jdp usage counters, registered as de.jpaw.dp:type=JdpMetrics if -Djdp.metrics=true. */
+public interface JdpMetricsMXBean {
+    /** Returns the counters of all used types. */
+    List<JdpTypeMetrics> getTypes();
+
+    /** Returns the number of constructed instances per scope. */
+    Map<String, Long> getInstantiationsByScope();
+
+    /** Returns the names and counters of the n types with the most instantiations. */
+    List<JdpTypeMetrics> topInstantiated(int n);
+
+    /** Sets all counters to zero. */
+    void reset();
+}
@@ -0,0 +1,112 @@
+package de.jpaw.dp;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.ObjectName;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/** Collects usage counters of Jdp, if enabled by the system property jdp.metrics=true.
+ *
+ * The flag is a static final field, all recording calls are guarded by it, therefore the JIT removes them entirely if metrics are disabled.
+ * Counters are LongAdders, which do not contend when updated concurrently. When enabled, the counters are exposed
+ * as the MXBean de.jpaw.dp:type=JdpMetrics as well.
+ */
+final class JdpMetricsRecorder {
+    private static final Logger LOGGER = LoggerFactory.getLogger(JdpMetricsRecorder.class);
+    static final String PROPERTY = "jdp.metrics";
+    static final String OBJECT_NAME = "de.jpaw.dp:type=JdpMetrics";
+    static final boolean ENABLED = Boolean.getBoolean(PROPERTY);
+
+    /** The counters of a single type. */
+    static final class TypeCounters {
+        final LongAdder lookups = new LongAdder();
+        final LongAdder failures = new LongAdder();
+        final LongAdder fallbackHits = new LongAdder();
+        final LongAdder instantiations = new LongAdder();
+        final LongAdder constructionNanos = new LongAdder();
+        final LongAdder scopeGets = new LongAdder();
+    }
+
+    private static final ConcurrentMap<Class<?>, TypeCounters> byType = new ConcurrentHashMap<Class<?>, TypeCounters>(1000);
+    private static final LongAdder [] instantiationsByScope = new LongAdder [Scopes.values().length];
+    static {
+        for (int i = 0; i < instantiationsByScope.length; ++i)
+            instantiationsByScope[i] = new LongAdder();
+        if (ENABLED)
+            registerMBean();
+    }
+
+    private JdpMetricsRecorder() {
+    }
+
+    private static void registerMBean() {
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(new JdpMetricsBean(), new ObjectName(OBJECT_NAME));
+        } catch (Exception e) {
+            LOGGER.warn("Cannot register MBean {}: {}", OBJECT_NAME, e.getMessage());
+        }
+    }
+
+    private static TypeCounters of(Class<?> type) {
+        TypeCounters c = byType.get(type);
+        if (c == null) {
+            c = new TypeCounters();
+            final TypeCounters c2 = byType.putIfAbsent(type, c);
+            if (c2 != null)
+                c = c2;
+        }
+        return c;
+    }
+
+    /** Records a lookup of type and qualifier, and its outcome.
+     * Qualified entries are only found for their qualifiers, therefore an unqualified result of a qualified lookup is the global fallback. */
+    static void lookup(Class<?> type, String qualifier, Provider<?> result) {
+        final TypeCounters c = of(type);
+        c.lookups.increment();
+        if (result == null)
+            c.failures.increment();
+        else if (qualifier != null && result instanceof JdpEntry && !JdpTypeEntry.isQualified((JdpEntry<?>) result))
+            c.fallbackHits.increment();
+    }
+
+    /** Records the construction of an instance, nanos includes the construction of all instances it requires. */
+    static void instantiated(Class<?> type, Scopes scope, long nanos) {
+        final TypeCounters c = of(type);
+        c.instantiations.increment();
+        c.constructionNanos.add(nanos);
+        instantiationsByScope[scope.ordinal()].increment();
+    }
+
+    /** Records a request to a PerThread, custom or structured scope. */
+    static void scopeGet(Class<?> type) {
+        of(type).scopeGets.increment();
+    }
+
+    static void reset() {
+        byType.clear();
+        for (LongAdder a : instantiationsByScope)
+            a.reset();
+    }
+
+    static JdpMetrics snapshot() {
+        final List<JdpTypeMetrics> types = new ArrayList<JdpTypeMetrics>(byType.size());
+        for (Map.Entry<Class<?>, TypeCounters> e : byType.entrySet()) {
+            final TypeCounters c = e.getValue();
+            types.add(new JdpTypeMetrics(e.getKey().getName(), c.lookups.sum(), c.failures.sum(), c.fallbackHits.sum(),
+              c.instantiations.sum(), c.constructionNanos.sum(), c.scopeGets.sum()));
+        }
+        final Map<String, Long> scopes = new LinkedHashMap<String, Long>();
+        for (Scopes s : Scopes.values())
+            scopes.put(s.name(), instantiationsByScope[s.ordinal()].sum());
+        return new JdpMetrics(ENABLED, types, scopes);
+    }
+}
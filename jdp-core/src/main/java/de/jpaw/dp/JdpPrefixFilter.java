@@ -0,0 +1,134 @@
+package de.jpaw.dp;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/** Decides which classes Jdp registers, based on the package prefixes configured by Jdp.includePackagePrefix() and Jdp.excludePackagePrefix().
+ *
+ * Classes starting with an excluded prefix are not registered at all. A class, superclass or interface is registered as a type for
+ * an implementation if it is not excluded and starts with any of the included prefixes (or no prefix has been included).
+ * The included prefixes therefore only restrict the types an implementation can be looked up by, they never skip scanned classes.
+ *
+ * Prefixes are matched against canonical class names, nested classes are written as Outer.Inner.
+ * The prefixes are compiled into tries, therefore a check is linear in the length of the class name, independent of the number of prefixes.
+ * The verdict per class is cached.
+ *
+ * Instances are immutable with respect to the prefixes, Jdp creates a new one whenever the configuration changes.
+ */
+final class JdpPrefixFilter {
+    private static final char [] NO_KEYS = new char [0];
+    private static final Node [] NO_CHILDREN = new Node [0];
+
+    /** Node of a character trie. The children are sorted by their character. */
+    private static final class Node {
+        private boolean terminal = false;   // a prefix ends here
+        private char [] keys = NO_KEYS;
+        private Node [] children = NO_CHILDREN;
+
+        private Node child(char c) {
+            final int i = Arrays.binarySearch(keys, c);
+            return i >= 0 ? children[i] : null;
+        }
+
+        private Node addChild(char c) {
+            int i = Arrays.binarySearch(keys, c);
+            if (i >= 0)
+                return children[i];
+            i = -i - 1;
+            final char [] newKeys = new char [keys.length + 1];
+            final Node [] newChildren = new Node [keys.length + 1];
+            System.arraycopy(keys, 0, newKeys, 0, i);
+            System.arraycopy(children, 0, newChildren, 0, i);
+            System.arraycopy(keys, i, newKeys, i + 1, keys.length - i);
+            System.arraycopy(children, i, newChildren, i + 1, keys.length - i);
+            newKeys[i] = c;
+            newChildren[i] = new Node();
+            keys = newKeys;
+            children = newChildren;
+            return newChildren[i];
+        }
+    }
+
+    private final Node includes;    // null if all classes are included
+    private final Node excludes;    // null if no class is excluded
+    private final ConcurrentMap<Class<?>, Integer> verdicts = new ConcurrentHashMap<Class<?>, Integer>(1000);     // bit mask of the flags below
+    private static final int INCLUDED = 1;
+    private static final int EXCLUDED = 2;
+
+    JdpPrefixFilter(Collection<String> includedPrefixes, Collection<String> excludedPrefixes) {
+        this.includes = compile(includedPrefixes);
+        this.excludes = compile(excludedPrefixes);
+    }
+
+    private static Node compile(Collection<String> prefixes) {
+        if (prefixes.isEmpty())
+            return null;
+        final Node root = new Node();
+        for (String prefix : prefixes) {
+            Node n = root;
+            for (int i = 0; i < prefix.length(); ++i)
+                n = n.addChild(prefix.charAt(i));
+            n.terminal = true;
+        }
+        return root;
+    }
+
+    /** Returns true if any prefix of the trie is a prefix of name. */
+    private static boolean startsWithAny(Node root, String name) {
+        Node n = root;
+        for (int i = 0; !n.terminal; ++i) {
+            if (i >= name.length())
+                return false;
+            n = n.child(name.charAt(i));
+            if (n == null)
+                return false;
+        }
+        return true;
+    }
+
+    /** Returns the name prefixes are matched against: the canonical name, or the binary name for local and anonymous classes. */
+    private static String nameOf(Class<?> cls) {
+        final String name = cls.getCanonicalName();
+        return name != null ? name : cls.getName();
+    }
+
+    private int verdict(Class<?> cls) {
+        Integer verdict = verdicts.get(cls);
+        if (verdict == null) {
+            final String name = nameOf(cls);
+            int flags = 0;
+            if (includes == null || startsWithAny(includes, name))
+                flags |= INCLUDED;
+            if (excludes != null && startsWithAny(excludes, name))
+                flags |= EXCLUDED;
+            verdict = Integer.valueOf(flags);
+            verdicts.put(cls, verdict);
+        }
+        return verdict.intValue();
+    }
+
+    /** Returns true if the class must not be registered at all. */
+    boolean isExcluded(Class<?> cls) {
+        return excludes != null && (verdict(cls) & EXCLUDED) != 0;
+    }
+
+    /** Returns true if a class of the given binary name must not be registered at all. Used to avoid loading classes listed in the index.
+     * Nested classes are converted to their canonical form. */
+    boolean isExcluded(String binaryName) {
+        return excludes != null && startsWithAny(excludes, binaryName.replace('$', '.'));
+    }
+
+    /** Returns true if cls should be registered as a type for the implementations which extend or implement it. */
+    boolean acceptsAsType(Class<?> cls) {
+        if (includes == null && excludes == null)
+            return true;
+        return verdict(cls) == INCLUDED;
+    }
+
+    /** Returns true if the package prefix can contain any class which is not excluded. Used to skip scanning of excluded packages. */
+    boolean mayAccept(String packagePrefix) {
+        return excludes == null || !startsWithAny(excludes, packagePrefix);
+    }
+}
@@ -0,0 +1,102 @@
+package de.jpaw.dp;
+
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/** The JdpResolutionCache stores the outcome of provider resolution per (type, qualifier).
+ *
+ * Negative results (no provider) and global fallback results are cached as well.
+ * Every change of the registry bumps the epoch. Cached results are only valid for the epoch they have been computed in,
+ * therefore a stale result computed concurrently with a rebinding will never be returned after the rebinding completed.
+ *
+ * The results are attached to the Class objects via a ClassValue, which avoids hashing the class for every lookup.
+ * Outdated results are replaced upon the next resolution, clear() detaches all of them, for example to release instances after a reset.
+ */
+final class JdpResolutionCache {
+    private static final int INIT_MAP_SIZE = 2;
+
+    /** Marker for a cached negative result. */
+    static final Provider<Object> NO_PROVIDER = new Provider<Object>() {
+        @Override
+        public Object get() {
+            return null;
+        }
+    };
+
+    /** Resolved providers of a single type, computed within a single epoch. */
+    private static final class Resolutions {
+        private final int epoch;
+        private volatile Provider<?> unqualified = null;    // null = not yet resolved
+        private final ConcurrentMap<String, Provider<?>> qualified = new ConcurrentHashMap<String, Provider<?>>(INIT_MAP_SIZE);
+
+        private Resolutions(int epoch) {
+            this.epoch = epoch;
+        }
+    }
+
+    /** Holder of the current results of a type. */
+    private static final class Slot {
+        private volatile Resolutions resolutions = null;
+    }
+
+    private final Set<Class<?>> classes = ConcurrentHashMap.newKeySet(1000);     // all classes which obtained a slot
+    private final ClassValue<Slot> cache = new ClassValue<Slot>() {
+        @Override
+        protected Slot computeValue(Class<?> cls) {
+            classes.add(cls);
+            return new Slot();
+        }
+    };
+    private volatile int epoch = 0;
+
+    /** Returns the current epoch. Must be read before the resolution is performed. */
+    int epoch() {
+        return epoch;
+    }
+
+    /** Invalidates all cached results. Must be called after the registry has been modified.
+     * This is called for every registered class, therefore it only bumps the epoch. Outdated results are replaced upon the next resolution. */
+    void invalidate() {
+        synchronized (cache) {
+            ++epoch;
+        }
+    }
+
+    /** Invalidates all cached results and detaches the slots from the classes. */
+    void clear() {
+        synchronized (cache) {
+            ++epoch;
+            for (Iterator<Class<?>> i = classes.iterator(); i.hasNext(); ) {
+                cache.remove(i.next());
+                i.remove();     // a class which obtains a slot concurrently stays registered
+            }
+        }
+    }
+
+    /** Returns the cached provider, NO_PROVIDER for a cached negative result, or null if nothing valid is cached. */
+    Provider<?> get(Class<?> type, String qualifier, int currentEpoch) {
+        final Resolutions r = cache.get(type).resolutions;
+        if (r == null || r.epoch != currentEpoch)
+            return null;
+        return qualifier == null ? r.unqualified : r.qualified.get(qualifier);
+    }
+
+    /** Stores the result of a resolution which has been performed after the epoch had been read. */
+    void put(Class<?> type, String qualifier, int resolvedInEpoch, Provider<?> provider) {
+        final Provider<?> p = provider == null ? NO_PROVIDER : provider;
+        final Slot slot = cache.get(type);
+        Resolutions r = slot.resolutions;
+        if (r == null || r.epoch != resolvedInEpoch) {
+            if (resolvedInEpoch != epoch)
+                return;     // outdated already, do not store
+            r = new Resolutions(resolvedInEpoch);
+            slot.resolutions = r;
+        }
+        if (qualifier == null)
+            r.unqualified = p;
+        else
+            r.qualified.put(qualifier, p);
+    }
+}
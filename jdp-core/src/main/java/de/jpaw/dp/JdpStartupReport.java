@@ -0,0 +1,108 @@
+package de.jpaw.dp;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/** The durations of the initialization phases performed by Jdp since the last reset, sorted by descending wall clock time.
+ *
+ * Phases can be nested (a STARTUP stage may construct singletons) and can run concurrently (with scanThreads, startupThreads
+ * or eagerThreads greater than 1), therefore the durations do not add up to the total initialization time.
+ * CPU times are those of the thread running the phase, they are -1 if the JVM does not measure thread CPU time.
+ */
+public final class JdpStartupReport {
+    /** The kind of a measured phase. */
+    public enum Phase {
+        SCAN,               // querying the classpath (or the build time index) of a package prefix
+        REGISTRATION,       // registering the classes found for a package prefix
+        EAGER_SINGLETONS,   // constructing all pending eager singletons
+        STARTUP             // a single @Startup stage
+    }
+
+    /** A single measured phase. */
+    public static final class Entry {
+        private final Phase phase;
+        private final String name;
+        private final long wallNanos;
+        private final long cpuNanos;
+
+        Entry(Phase phase, String name, long wallNanos, long cpuNanos) {
+            this.phase = phase;
+            this.name = name;
+            this.wallNanos = wallNanos;
+            this.cpuNanos = cpuNanos;
+        }
+
+        public Phase getPhase() {
+            return phase;
+        }
+
+        /** Returns the package prefix for SCAN and REGISTRATION, the stage and class name for STARTUP. */
+        public String getName() {
+            return name;
+        }
+
+        public long getWallNanos() {
+            return wallNanos;
+        }
+
+        /** Returns the CPU time of the thread running the phase, or -1 if not available. */
+        public long getCpuNanos() {
+            return cpuNanos;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%10.3f %10s  %-16s %s", wallNanos / 1e6, cpuNanos < 0 ? "n/a" : String.format("%.3f", cpuNanos / 1e6), phase.name(), name);
+        }
+    }
+
+    private static final Comparator<Entry> BY_WALL_TIME = new Comparator<Entry>() {
+        @Override
+        public int compare(Entry a, Entry b) {
+            return Long.compare(b.wallNanos, a.wallNanos);
+        }
+    };
+
+    private final List<Entry> entries;
+
+    JdpStartupReport(List<Entry> entries) {
+        final List<Entry> sorted = new ArrayList<Entry>(entries);
+        Collections.sort(sorted, BY_WALL_TIME);
+        this.entries = Collections.unmodifiableList(sorted);
+    }
+
+    /** Returns all entries, sorted by descending wall clock time. */
+    public List<Entry> getEntries() {
+        return entries;
+    }
+
+    /** Returns the sum of the wall clock times of all entries of a phase. */
+    public long getWallNanos(Phase phase) {
+        long sum = 0L;
+        for (Entry e : entries) {
+            if (e.phase == phase)
+                sum += e.wallNanos;
+        }
+        return sum;
+    }
+
+    @Override
+    public String toString() {
+        return toString(entries.size());
+    }
+
+    /** Returns the report limited to the slowest maxEntries entries, followed by the number of omitted ones. */
+    public String toString(int maxEntries) {
+        final int shown = Math.max(0, Math.min(maxEntries, entries.size()));
+        final StringBuilder b = new StringBuilder(160 + 80 * shown);
+        b.append("Jdp startup report, sorted by wall clock time:\n");
+        b.append(String.format("%10s %10s  %-16s %s%n", "wall ms", "cpu ms", "phase", "name"));
+        for (Entry e : entries.subList(0, shown))
+            b.append(e).append('\n');
+        if (shown < entries.size())
+            b.append("... ").append(entries.size() - shown).append(" more entries, see Jdp.startupReport()\n");
+        return b.toString();
+    }
+}
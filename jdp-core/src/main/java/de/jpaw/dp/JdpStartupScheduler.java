@@ -0,0 +1,134 @@
+package de.jpaw.dp;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ExecutorService;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import de.jpaw.dp.exceptions.CyclicStartupDependencyException;
+import de.jpaw.dp.exceptions.StartupMethodExecutionException;
+
+/** Runs @Startup stages concurrently on a bounded pool of threads, respecting their dependencies.
+ *
+ * A stage which declares dependencies via @Startup.dependsOn waits for these stages only (dependencies on classes which are not part
+ * of this run are considered satisfied). A stage without declared dependencies waits for all stages of lower priority bands,
+ * where the band of a stage is its @Startup value divided by the band width. With a band width of 1, this is the sequential order.
+ *
+ * All stages which do not depend on a failed one are run. Failures are reported afterwards as a single StartupMethodExecutionException,
+ * with the failures of later stages attached as suppressed exceptions.
+ */
+final class JdpStartupScheduler {
+    private static final Logger LOGGER = LoggerFactory.getLogger(JdpStartupScheduler.class);
+
+    private final SortedMap<Integer, Class<?>> sortedStartups;
+    private final int threads;
+    private final int bandWidth;
+    private final Map<Class<?>, Integer> orderByClass = new HashMap<Class<?>, Integer>();
+    private final Map<Class<?>, CompletableFuture<StartupShutdown>> futures = new HashMap<Class<?>, CompletableFuture<StartupShutdown>>();
+    private final Set<Class<?>> inProgress = new HashSet<Class<?>>();
+    private final Map<Integer, Throwable> failures = new ConcurrentSkipListMap<Integer, Throwable>();  // sorted by stage
+    private final CompletableFuture<Void> gate = new CompletableFuture<Void>();     // completed once all stages have been scheduled
+
+    JdpStartupScheduler(SortedMap<Integer, Class<?>> sortedStartups, int threads, int bandWidth) {
+        this.sortedStartups = sortedStartups;
+        this.threads = threads;
+        this.bandWidth = bandWidth > 0 ? bandWidth : 1;
+        for (Map.Entry<Integer, Class<?>> se : sortedStartups.entrySet())
+            orderByClass.put(se.getValue(), se.getKey());
+    }
+
+    /** Runs all stages and adds the beans which require shutdown calls to lifecycleBeans, in ascending order of their stages.
+     * This is done for all successful stages, also if others failed. */
+    void run(List<StartupShutdown> lifecycleBeans) {
+        final ExecutorService executor = JdpThreadFactory.newPool("jdp-startup", threads, sortedStartups.size());
+        try {
+            for (Class<?> cls : sortedStartups.values())
+                schedule(cls, executor);
+            gate.complete(null);    // no stage starts before the dependency graph has been verified to be acyclic
+            for (Class<?> cls : sortedStartups.values()) {
+                try {
+                    final StartupShutdown bean = futures.get(cls).join();
+                    if (bean != null)
+                        lifecycleBeans.add(bean);
+                } catch (Exception e) {
+                    // the failure is recorded already, or this stage has been skipped due to a failed dependency
+                }
+            }
+            if (!failures.isEmpty())
+                throw aggregateFailures();
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private List<Class<?>> dependenciesOf(Class<?> cls, Integer order) {
+        final List<Class<?>> dependencies = new ArrayList<Class<?>>();
+        final Startup anno = cls.getAnnotation(Startup.class);
+        final Class<?> [] declared = anno == null ? new Class<?> [0] : anno.dependsOn();
+        if (declared.length > 0) {
+            for (Class<?> dependency : declared) {
+                if (orderByClass.containsKey(dependency))
+                    dependencies.add(dependency);
+                else
+                    LOGGER.debug("Startup dependency {} of {} is not part of this run, considered satisfied", dependency.getCanonicalName(), cls.getCanonicalName());
+            }
+        } else {
+            final int myBand = Math.floorDiv(order, bandWidth);
+            for (Map.Entry<Integer, Class<?>> se : sortedStartups.headMap(order).entrySet()) {
+                if (Math.floorDiv(se.getKey(), bandWidth) < myBand)
+                    dependencies.add(se.getValue());
+            }
+        }
+        return dependencies;
+    }
+
+    /** Creates the future for a stage, after the futures of its dependencies. */
+    private CompletableFuture<StartupShutdown> schedule(final Class<?> cls, ExecutorService executor) {
+        CompletableFuture<StartupShutdown> future = futures.get(cls);
+        if (future != null)
+            return future;
+        if (!inProgress.add(cls))
+            throw new CyclicStartupDependencyException(cls);
+        final Integer order = orderByClass.get(cls);
+        final List<Class<?>> dependencies = dependenciesOf(cls, order);
+        final CompletableFuture<?> [] prerequisites = new CompletableFuture<?> [dependencies.size() + 1];
+        prerequisites[0] = gate;
+        for (int i = 1; i < prerequisites.length; ++i)
+            prerequisites[i] = schedule(dependencies.get(i - 1), executor);
+        future = CompletableFuture.allOf(prerequisites).thenApplyAsync(ignored -> {
+            try {
+                return Jdp.runStartup(order, cls);
+            } catch (RuntimeException | Error e) {
+                failures.put(order, e);
+                throw e;
+            }
+        }, executor);
+        inProgress.remove(cls);
+        futures.put(cls, future);
+        return future;
+    }
+
+    private StartupMethodExecutionException aggregateFailures() {
+        StartupMethodExecutionException result = null;
+        for (Map.Entry<Integer, Throwable> f : failures.entrySet()) {
+            final Throwable e = f.getValue();
+            LOGGER.error("Startup stage {} of {} failed: {}", f.getKey(), sortedStartups.get(f.getKey()).getCanonicalName(), e.getMessage());
+            if (result == null)
+                result = e instanceof StartupMethodExecutionException
+                  ? (StartupMethodExecutionException) e
+                  : new StartupMethodExecutionException(sortedStartups.get(f.getKey()), e);
+            else
+                result.addSuppressed(e);
+        }
+        return result;
+    }
+}
@@ -0,0 +1,94 @@
+package de.jpaw.dp;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/** Measures a single initialization phase for the JdpStartupReport.
+ *
+ * If Jdp.slowStageMillis is positive, a watchdog logs the stack of the thread running the phase whenever it has been running
+ * for another slowStageMillis milliseconds, until the phase ends.
+ */
+final class JdpStartupTimer {
+    private static final Logger LOGGER = LoggerFactory.getLogger(JdpStartupTimer.class);
+    private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+    private static final boolean CPU_TIME_SUPPORTED = THREADS.isCurrentThreadCpuTimeSupported();
+    private static final List<JdpStartupReport.Entry> measured = new ArrayList<JdpStartupReport.Entry>(100);
+    private static ScheduledThreadPoolExecutor watchdog = null;     // created upon first use
+
+    private final JdpStartupReport.Phase phase;
+    private final String name;
+    private final Thread thread = Thread.currentThread();
+    private final long startNanos = System.nanoTime();
+    private final long startCpuNanos = cpuTime();
+    private final ScheduledFuture<?> watch;
+
+    private JdpStartupTimer(JdpStartupReport.Phase phase, String name, long slowMillis) {
+        this.phase = phase;
+        this.name = name;
+        this.watch = slowMillis > 0 ? getWatchdog().scheduleAtFixedRate(new Runnable() {
+            @Override
+            public void run() {
+                logStack();
+            }
+        }, slowMillis, slowMillis, TimeUnit.MILLISECONDS) : null;
+    }
+
+    /** Starts the measurement of a phase on the current thread. */
+    static JdpStartupTimer start(JdpStartupReport.Phase phase, String name) {
+        return new JdpStartupTimer(phase, name, Jdp.slowStageMillis);
+    }
+
+    /** Ends the measurement, which must be done by the thread which started it. */
+    void stop() {
+        if (watch != null)
+            watch.cancel(false);
+        final long wallNanos = System.nanoTime() - startNanos;
+        final long cpuNanos = startCpuNanos < 0L ? -1L : cpuTime() - startCpuNanos;
+        synchronized (measured) {
+            measured.add(new JdpStartupReport.Entry(phase, name, wallNanos, cpuNanos));
+        }
+    }
+
+    private static long cpuTime() {
+        return CPU_TIME_SUPPORTED ? THREADS.getCurrentThreadCpuTime() : -1L;   // also -1 if measurement has been disabled
+    }
+
+    private static synchronized ScheduledThreadPoolExecutor getWatchdog() {
+        if (watchdog == null) {
+            watchdog = new ScheduledThreadPoolExecutor(1, new JdpThreadFactory("jdp-watchdog"));
+            watchdog.setRemoveOnCancelPolicy(true);
+            watchdog.setKeepAliveTime(10L, TimeUnit.SECONDS);
+            watchdog.allowCoreThreadTimeOut(true);
+        }
+        return watchdog;
+    }
+
+    private void logStack() {
+        final StringBuilder b = new StringBuilder(2000);
+        for (StackTraceElement e : thread.getStackTrace())
+            b.append("\n\tat ").append(e);
+        LOGGER.warn("{} {} is running for {} ms on thread {}:{}",
+          phase.name(), name, (System.nanoTime() - startNanos) / 1000000L, thread.getName(), b);
+    }
+
+    /** Returns a report of all phases measured since the last reset. */
+    static JdpStartupReport report() {
+        synchronized (measured) {
+            return new JdpStartupReport(measured);
+        }
+    }
+
+    static void clear() {
+        synchronized (measured) {
+            measured.clear();
+        }
+    }
+}
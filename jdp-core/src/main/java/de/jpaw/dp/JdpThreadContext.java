@@ -0,0 +1,93 @@
+package de.jpaw.dp;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/** Tracks the thread bound scopes which hold a value for the current thread.
+ *
+ * Scopes register themselves when they are populated. Most deregister when they are closed, JdpThreadLocal and JdpThreadLocalStrict
+ * stay registered until the thread context is cleared, to avoid registering again for every value of a request scoped usage.
+ * The list per thread therefore only contains scopes in use, and usually is very short.
+ * The scopes are referenced weakly, a scope which is no longer used elsewhere is not kept alive by the threads it has been populated in.
+ * The list of a thread is only created when the first scope registers, threads which never populate a scope do not allocate anything.
+ */
+final class JdpThreadContext {
+    private static final Logger LOGGER = LoggerFactory.getLogger(JdpThreadContext.class);
+    private static final int INIT_ARRAY_SIZE = 8;
+
+    private static final ThreadLocal<List<WeakReference<ThreadBoundScope<?>>>> populatedScopes = new ThreadLocal<List<WeakReference<ThreadBoundScope<?>>>>();
+
+    private JdpThreadContext() {
+    }
+
+    /** Registers a scope which has been populated in the current thread. Registering it again has no effect. */
+    static void register(ThreadBoundScope<?> scope) {
+        List<WeakReference<ThreadBoundScope<?>>> scopes = populatedScopes.get();
+        if (scopes == null) {
+            scopes = new ArrayList<WeakReference<ThreadBoundScope<?>>>(INIT_ARRAY_SIZE);
+            populatedScopes.set(scopes);
+        }
+        for (int i = scopes.size() - 1; i >= 0; --i) {
+            final ThreadBoundScope<?> registered = scopes.get(i).get();
+            if (registered == scope)
+                return;
+            if (registered == null)
+                scopes.remove(i);       // purge scopes which have been garbage collected
+        }
+        scopes.add(new WeakReference<ThreadBoundScope<?>>(scope));
+    }
+
+    /** Deregisters a scope which has been closed in the current thread. */
+    static void deregister(ThreadBoundScope<?> scope) {
+        final List<WeakReference<ThreadBoundScope<?>>> scopes = populatedScopes.get();
+        if (scopes == null)
+            return;
+        for (int i = scopes.size() - 1; i >= 0; --i) {
+            if (scopes.get(i).get() == scope) {
+                scopes.remove(i);
+                return;
+            }
+        }
+    }
+
+    /** Returns the scopes which hold a value for the current thread, in order of their population. */
+    static ThreadBoundScope<?> [] getPopulated() {
+        final List<WeakReference<ThreadBoundScope<?>>> scopes = populatedScopes.get();
+        if (scopes == null)
+            return new ThreadBoundScope<?> [0];
+        final List<ThreadBoundScope<?>> result = new ArrayList<ThreadBoundScope<?>>(scopes.size());
+        for (WeakReference<ThreadBoundScope<?>> ref : scopes) {
+            final ThreadBoundScope<?> scope = ref.get();
+            if (scope != null && scope.peek() != null)
+                result.add(scope);
+        }
+        return result.toArray(new ThreadBoundScope<?> [result.size()]);
+    }
+
+    /** Closes all scopes populated in the current thread, in reverse order of their population.
+     * Values which implement AutoCloseable are closed as well, unless the scope keeps them for reuse. */
+    static void clear() {
+        final List<WeakReference<ThreadBoundScope<?>>> scopes = populatedScopes.get();
+        if (scopes == null)
+            return;
+        while (!scopes.isEmpty()) {
+            final ThreadBoundScope<?> scope = scopes.remove(scopes.size() - 1).get();
+            if (scope == null)
+                continue;
+            final Object value = scope.release();
+            scope.deregistered();
+            if (value instanceof AutoCloseable) {
+                try {
+                    ((AutoCloseable) value).close();
+                } catch (Exception e) {
+                    // we want to ensure that all other instances are closed as well
+                    LOGGER.error("Problem closing thread instance of {}: {}", value.getClass().getCanonicalName(), e.getMessage(), e);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package de.jpaw.dp;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/** Creates the daemon threads of the bounded pools Jdp uses during initialization. */
+final class JdpThreadFactory implements ThreadFactory {
+    private final String namePrefix;
+    private final AtomicInteger counter = new AtomicInteger();
+
+    JdpThreadFactory(String namePrefix) {
+        this.namePrefix = namePrefix;
+    }
+
+    @Override
+    public Thread newThread(Runnable r) {
+        final Thread t = new Thread(r, namePrefix + "-" + counter.incrementAndGet());
+        t.setDaemon(true);
+        return t;
+    }
+
+    /** Creates a pool of at most maxThreads threads, but not more than there are tasks. The caller must shut it down. */
+    static ExecutorService newPool(String namePrefix, int maxThreads, int tasks) {
+        return Executors.newFixedThreadPool(Math.max(1, Math.min(maxThreads, tasks)), new JdpThreadFactory(namePrefix));
+    }
+}
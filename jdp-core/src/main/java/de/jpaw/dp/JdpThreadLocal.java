@@ -1,13 +1,29 @@
 package de.jpaw.dp;
 
-import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 
 import de.jpaw.dp.CustomScope;
 import de.jpaw.dp.Provider;
 
-public class JdpThreadLocal<T> implements CustomScope<T>, AutoCloseable {
-    final protected ConcurrentMap<Long, T> instances = new ConcurrentHashMap<Long, T>(31);
+/** Custom scope which holds a separate value per thread.
+ * The values are stored in the threads themselves, lookups therefore neither box the thread id nor hash,
+ * and values of terminated threads are reclaimed by the garbage collector together with the thread. */
+public class JdpThreadLocal<T> implements CustomScope<T>, ThreadBoundScope<T>, AutoCloseable {
+    final protected ThreadLocal<T> values = new ThreadLocal<T>();
+    private final ThreadLocal<Boolean> registered = new ThreadLocal<Boolean>();    // set while registered in the JdpThreadContext, survives close()
+
+    /** The values by thread id, as they were stored before they moved into a ThreadLocal.
+     * Note that this view differs from the former map: it only contains the value of the current thread. Values of other threads
+     * are neither returned by get() nor included in size() or the iteration, and cannot be modified.
+     * @deprecated use values, or the methods of CustomScope */
+    @Deprecated
+    final protected ConcurrentMap<Long, T> instances = new JdpThreadLocalMap<T>(this);
+
+    /** @deprecated only useful as key of the deprecated instances map */
+    @Deprecated
+    protected final Long threadId() {
+        return Thread.currentThread().getId();
+    }
 
     private final Provider<T> factory;
     private final boolean allowOverwrite;
@@ -19,14 +35,9 @@ public class JdpThreadLocal<T> implements CustomScope<T>, AutoCloseable {
         this.allowNullGets = allowNullGets;
     }
 
-    protected final Long threadId() {
-        return Thread.currentThread().getId();
-    }
-
     @Override
     public T get() {
-        final Long id =  threadId();
-        T value = instances.get(id);
+        T value = values.get();
         if (value == null) {
             if (factory == null) {
                 if (allowNullGets)
@@ -34,20 +45,57 @@ public class JdpThreadLocal<T> implements CustomScope<T>, AutoCloseable {
                 throw new RuntimeException("No value and no factory defined for " + getClass().getCanonicalName()); // not allowed to get a null
             }
             value = factory.get();
-            instances.put(id, value);
+            values.set(value);
+            register();
         }
         return value;
     }
 
     @Override
     public void set(T instance) {
-        T oldvalue = instances.put(threadId(), instance);
+        if (instance == null) {
+            close();    // same as restore(null)
+            return;
+        }
+        T oldvalue = values.get();
+        values.set(instance);
+        if (oldvalue == null)
+            register();
         if (!allowOverwrite && oldvalue != null)
             throw new RuntimeException("Cannot overwrite a non-null value for " + getClass().getCanonicalName()); // not allowed to overwrite a value
     }
 
+    /** Registers this scope in the JdpThreadContext of the current thread, unless it is registered already.
+     * The registration is kept when the value is closed, therefore repeated set() / close() cycles register only once per thread. */
+    private void register() {
+        if (registered.get() == null) {
+            registered.set(Boolean.TRUE);
+            JdpThreadContext.register(this);
+        }
+    }
+
+    @Override
+    public void deregistered() {
+        registered.remove();
+    }
+
+    @Override
+    public T peek() {
+        return values.get();
+    }
+
     @Override
     public void close() {
-        instances.remove(threadId()); // no error if no instance existed - multiple close ops are allowed!
+        values.remove(); // no error if no instance existed - multiple close ops are allowed!
+    }
+
+    @Override
+    public void restore(T value) {
+        if (value == null) {
+            close();
+        } else {
+            values.set(value);
+            register();
+        }
     }
 }
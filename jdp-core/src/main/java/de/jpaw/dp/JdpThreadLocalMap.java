@@ -0,0 +1,98 @@
+package de.jpaw.dp;
+
+import java.util.AbstractMap;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentMap;
+
+/** View of a thread bound scope as a map by thread id, which is how JdpThreadLocal and JdpThreadLocalStrict stored their values before.
+ * It backs their deprecated protected field "instances".
+ * Only the entry of the current thread is visible. Entries of other threads are reported as absent, and cannot be modified. */
+final class JdpThreadLocalMap<T> extends AbstractMap<Long, T> implements ConcurrentMap<Long, T> {
+    private final ThreadBoundScope<T> scope;
+
+    JdpThreadLocalMap(ThreadBoundScope<T> scope) {
+        this.scope = scope;
+    }
+
+    private static boolean isCurrentThread(Object key) {
+        return key instanceof Long && ((Long) key).longValue() == Thread.currentThread().getId();
+    }
+
+    private static void checkCurrentThread(Long key, Object value) {
+        if (value == null)
+            throw new NullPointerException();
+        if (!isCurrentThread(key))
+            throw new UnsupportedOperationException("Only the value of the current thread can be modified");
+    }
+
+    @Override
+    public T get(Object key) {
+        return isCurrentThread(key) ? scope.peek() : null;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return get(key) != null;
+    }
+
+    @Override
+    public T put(Long key, T value) {
+        checkCurrentThread(key, value);
+        final T previous = scope.peek();
+        scope.restore(value);
+        return previous;
+    }
+
+    @Override
+    public T remove(Object key) {
+        final T previous = get(key);
+        if (previous != null)
+            scope.close();
+        return previous;
+    }
+
+    @Override
+    public T putIfAbsent(Long key, T value) {
+        checkCurrentThread(key, value);
+        final T previous = scope.peek();
+        if (previous == null)
+            scope.restore(value);
+        return previous;
+    }
+
+    @Override
+    public boolean remove(Object key, Object value) {
+        if (value == null || !value.equals(get(key)))
+            return false;
+        scope.close();
+        return true;
+    }
+
+    @Override
+    public boolean replace(Long key, T oldValue, T newValue) {
+        checkCurrentThread(key, newValue);
+        if (oldValue == null || !oldValue.equals(scope.peek()))
+            return false;
+        scope.restore(newValue);
+        return true;
+    }
+
+    @Override
+    public T replace(Long key, T value) {
+        checkCurrentThread(key, value);
+        final T previous = scope.peek();
+        if (previous != null)
+            scope.restore(value);
+        return previous;
+    }
+
+    @Override
+    public Set<Map.Entry<Long, T>> entrySet() {
+        final T current = scope.peek();
+        if (current == null)
+            return Collections.emptySet();
+        return Collections.<Map.Entry<Long, T>>singleton(new SimpleImmutableEntry<Long, T>(Thread.currentThread().getId(), current));
+    }
+}
@@ -1,25 +1,78 @@
 package de.jpaw.dp;
 
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /** The JdpTypeEntry stores the lists of qualified and unqualified entries for a given interface (or base class).
- * The generics type parameter T is the precise class of the interface / base class. The lists are supertypes (which extend T) */
+ * The generics type parameter T is the precise class of the interface / base class. The lists are supertypes (which extend T)
+ *
+ * The entries of a qualifier are kept in immutable Entries views, which are replaced whenever bindings change.
+ * Readers therefore never lock and never see a partially modified list, while modifications are serialized by the locker.
+ * Adding an entry does not copy the list: views share a backing array, which grows by doubling, therefore registering
+ * n classes for a common supertype costs O(n), not O(n * n). */
 final class JdpTypeEntry<T> {
-    private static final int INIT_ARRAY_SIZE = 4;
-    private static final int INIT_MAP_SIZE = 2;
-    private final List<JdpEntry<? extends T>> unqualifiedEntries = new ArrayList<JdpEntry<? extends T>>(INIT_ARRAY_SIZE);
-    private final Map<String, List<JdpEntry<? extends T>>> qualifiedEntries = new HashMap<String, List<JdpEntry<? extends T>>>(INIT_MAP_SIZE);
+    private static final JdpEntry<?> [] NO_ENTRIES = new JdpEntry<?> [0];
+    private static final int INITIAL_CAPACITY = 4;
+
+    /** Immutable view of the entries of a qualifier: the first size elements of a backing array, which must not be modified.
+     * Appending writes behind the last element of all views sharing the array, and returns a new view. */
+    static final class Entries<T> {
+        private static final Entries<?> EMPTY = new Entries<Object>((JdpEntry<? extends Object> []) NO_ENTRIES, 0);
+
+        private final JdpEntry<? extends T> [] array;
+        final int size;
+
+        private Entries(JdpEntry<? extends T> [] array, int size) {
+            this.array = array;
+            this.size = size;
+        }
+
+        private static <T> Entries<T> empty() {
+            return (Entries<T>) EMPTY;
+        }
+
+        JdpEntry<? extends T> get(int i) {
+            return array[i];
+        }
+
+        /** Returns a view with an additional entry. Must only be invoked for the current view, while holding the locker. */
+        private Entries<T> append(JdpEntry<? extends T> additional) {
+            JdpEntry<? extends T> [] a = array;
+            if (size == a.length)
+                a = Arrays.copyOf(a, size == 0 ? INITIAL_CAPACITY : 2 * size);
+            a[size] = additional;       // not yet visible by any view
+            return new Entries<T>(a, size + 1);
+        }
+    }
+
+    /** The unqualified entries, and the entries per qualifier. The qualified map is updated in place, the unqualified entries and
+     * the snapshot itself are replaced. */
+    private static final class Snapshot<T> {
+        private final Entries<T> unqualifiedEntries;
+        private final ConcurrentMap<String, Entries<T>> qualifiedEntries;
+
+        private Snapshot(Entries<T> unqualifiedEntries, ConcurrentMap<String, Entries<T>> qualifiedEntries) {
+            this.unqualifiedEntries = unqualifiedEntries;
+            this.qualifiedEntries = qualifiedEntries;
+        }
+
+        private Entries<T> getEntries(String qualifier) {
+            return (qualifier == null ? unqualifiedEntries : qualifiedEntries.get(qualifier));
+        }
+    }
+
+    private volatile Snapshot<T> snapshot = emptySnapshot();
     private final Object locker = new Object();
 
-    private List<JdpEntry<? extends T>> newListWithInitialEntry(JdpEntry<? extends T> e) {
-        List<JdpEntry<? extends T>> l = new ArrayList<JdpEntry<? extends T>>(INIT_ARRAY_SIZE);
-        l.add(e);
-        return l;
+    private static <T> Snapshot<T> emptySnapshot() {
+        return new Snapshot<T>(Entries.<T>empty(), new ConcurrentHashMap<String, Entries<T>>(4));
     }
 
     JdpTypeEntry(JdpEntry<T> initial) {
@@ -28,37 +81,71 @@ final class JdpTypeEntry<T> {
 
     /* remove all entries */
     final void clear() {
-        unqualifiedEntries.clear();
-        qualifiedEntries.clear();
+        synchronized (locker) {
+            snapshot = emptySnapshot();
+        }
     }
 
     /* remove all entries for a given qualifier */
     final void clear(String qualifier) {
-        List<JdpEntry<? extends T>> currentEntries = qualifiedEntries.get(qualifier);
-        if (currentEntries != null)
-            currentEntries.clear();
+        synchronized (locker) {
+            removeEntries(snapshot, qualifier);
+        }
     }
 
     final void addEntry(JdpEntry<? extends T> additional) {
-        final List<String> qualifiers = additional.qualifiers;
-        if (qualifiers == null || qualifiers.size() == 0)
-            unqualifiedEntries.add(additional);
-        else {
-            synchronized (locker) {
-                for (String qualifier: qualifiers) {
-                    List<JdpEntry<? extends T>> l = qualifiedEntries.get(qualifier);
-                    if (l == null) {
-                        qualifiedEntries.put(qualifier, newListWithInitialEntry(additional));
-                    } else {
-                        l.add(additional);
-                    }
+        synchronized (locker) {
+            snapshot = withEntry(snapshot, additional);
+        }
+    }
+
+    /** Replaces all entries (qualifier == null) or the entries of a qualifier by a new one, in a single step.
+     * Concurrent readers either see the old or the new entries, but never no entry at all. */
+    final void replaceEntries(String qualifier, JdpEntry<? extends T> additional) {
+        synchronized (locker) {
+            if (qualifier == null) {
+                snapshot = withEntry(JdpTypeEntry.<T>emptySnapshot(), additional);
+            } else {
+                final Snapshot<T> current = snapshot;
+                if (isQualified(additional) && additional.qualifiers.contains(qualifier)) {
+                    current.qualifiedEntries.put(qualifier, Entries.<T>empty().append(additional));     // replaces the entries in a single step
+                    snapshot = withEntry(current, additional, qualifier);
+                } else {
+                    removeEntries(current, qualifier);
+                    snapshot = withEntry(current, additional);
                 }
             }
         }
     }
 
-    private static <T> void join(StringBuilder b, List<JdpEntry<? extends T>> types) {
-        for (int i = 0; i < types.size(); ++i) {
+    private static <T> void removeEntries(Snapshot<T> current, String qualifier) {
+        if (current.qualifiedEntries.containsKey(qualifier))
+            current.qualifiedEntries.put(qualifier, Entries.<T>empty());
+    }
+
+    static boolean isQualified(JdpEntry<?> entry) {
+        return entry.qualifiers != null && entry.qualifiers.size() > 0;
+    }
+
+    private static <T> Snapshot<T> withEntry(Snapshot<T> current, JdpEntry<? extends T> additional) {
+        return withEntry(current, additional, null);
+    }
+
+    /** Adds the entry for all of its qualifiers (except skipQualifier, which has been set already), or as unqualified entry. */
+    private static <T> Snapshot<T> withEntry(Snapshot<T> current, JdpEntry<? extends T> additional, String skipQualifier) {
+        if (!isQualified(additional))
+            return new Snapshot<T>(current.unqualifiedEntries.append(additional), current.qualifiedEntries);
+        for (String qualifier: additional.qualifiers) {
+            if (qualifier.equals(skipQualifier))
+                continue;
+            final Entries<T> l = current.qualifiedEntries.get(qualifier);
+            current.qualifiedEntries.put(qualifier, (l == null ? Entries.<T>empty() : l).append(additional));
+        }
+        return current;
+    }
+
+    private static <T> void join(StringBuilder b, Entries<T> types) {
+        for (int i = 0; i < types.size; ++i) {
             if (i > 0)
                 b.append(", ");
             b.append(types.get(i).actualType.getSimpleName());
@@ -66,10 +153,11 @@ final class JdpTypeEntry<T> {
         b.append('\n');
     }
     String dump() {
+        final Snapshot<T> current = snapshot;
         StringBuilder b = new StringBuilder(1000);
         b.append("- unnamed entries: ");
-        join(b, unqualifiedEntries);
-        for (Map.Entry<String, List<JdpEntry<? extends T>>> e : qualifiedEntries.entrySet()) {
+        join(b, current.unqualifiedEntries);
+        for (Map.Entry<String, Entries<T>> e : current.qualifiedEntries.entrySet()) {
             b.append(" - qualified by ");
             b.append(e.getKey());
             b.append(": ");
@@ -80,11 +168,11 @@ final class JdpTypeEntry<T> {
     }
 
     Scopes getScopeForClassname(String classname, String qualifier) {
-        List<JdpEntry<? extends T>> baseList = (qualifier == null ? unqualifiedEntries : qualifiedEntries.get(qualifier));
+        Entries<T> baseList = snapshot.getEntries(qualifier);
         if (baseList != null) {
-            for (JdpEntry<? extends T> e : baseList) {
-                if (e.actualType.getCanonicalName().equals(classname))
-                    return e.myScope;
+            for (int i = 0; i < baseList.size; ++i) {
+                if (baseList.get(i).actualType.getCanonicalName().equals(classname))
+                    return baseList.get(i).myScope;
             }
         }
         // not found
@@ -92,11 +180,11 @@ final class JdpTypeEntry<T> {
     }
 
     T getInstanceForClassname(String classname, String qualifier) {
-        List<JdpEntry<? extends T>> baseList = (qualifier == null ? unqualifiedEntries : qualifiedEntries.get(qualifier));
+        Entries<T> baseList = snapshot.getEntries(qualifier);
         if (baseList != null) {
-            for (JdpEntry<? extends T> e : baseList) {
-                if (e.actualType.getCanonicalName().equals(classname))
-                    return e.get(); // invoke the provider
+            for (int i = 0; i < baseList.size; ++i) {
+                if (baseList.get(i).actualType.getCanonicalName().equals(classname))
+                    return baseList.get(i).get(); // invoke the provider
             }
         }
         // not found
@@ -104,11 +192,11 @@ final class JdpTypeEntry<T> {
     }
 
     int runForAll(String qualifier, JdpExecutor<T> lambda) {
-        List<JdpEntry<? extends T>> baseList = (qualifier == null ? unqualifiedEntries : qualifiedEntries.get(qualifier));
+        Entries<T> baseList = snapshot.getEntries(qualifier);
         int ctr = 0;
         if (baseList != null) {
-            for (JdpEntry<? extends T> e : baseList) {
-                lambda.accept(e.get());
+            for (int i = 0; i < baseList.size; ++i) {
+                lambda.accept(baseList.get(i).get());
                 ++ctr;
             }
         }
@@ -116,11 +204,11 @@ final class JdpTypeEntry<T> {
     }
 
     int runForAllEntries(String qualifier, JdpExecutor<JdpEntry<? extends T>> lambda) {
-        List<JdpEntry<? extends T>> baseList = (qualifier == null ? unqualifiedEntries : qualifiedEntries.get(qualifier));
+        Entries<T> baseList = snapshot.getEntries(qualifier);
         int ctr = 0;
         if (baseList != null) {
-            for (JdpEntry<? extends T> e : baseList) {
-                lambda.accept(e);
+            for (int i = 0; i < baseList.size; ++i) {
+                lambda.accept(baseList.get(i));
                 ++ctr;
             }
         }
@@ -129,7 +217,9 @@ final class JdpTypeEntry<T> {
 
     /** Returns the global fallback, if it exists, else null. */
     Provider<? extends T> getGlobalFallback() {
-        for (JdpEntry<? extends T> e : unqualifiedEntries) {
+        final Entries<T> unqualified = snapshot.unqualifiedEntries;
+        for (int i = 0; i < unqualified.size; ++i) {
+            final JdpEntry<? extends T> e = unqualified.get(i);
             if (e.isFallback && e.isAny)
                 return e;
         }
@@ -138,44 +228,46 @@ final class JdpTypeEntry<T> {
 
     /** Return the set of qualifiers for which at least one entry exists. */
     Set<String> getQualifiers() {
-        return qualifiedEntries.keySet();
+        return Collections.unmodifiableSet(snapshot.qualifiedEntries.keySet());
     }
 
-    List<JdpEntry<? extends T>> getEntries(String qualifier) {
-        return (qualifier == null ? unqualifiedEntries : qualifiedEntries.get(qualifier));
+    /** Returns the current entries for the qualifier, or null. */
+    Entries<T> getEntries(String qualifier) {
+        return snapshot.getEntries(qualifier);
     }
 
     /** Returns an instance of every matching class for the given qualifier (or entries without a qualifier in case qualifier is null). */
     List<T> getAll(String qualifier) {
-        List<JdpEntry<? extends T>> baseList = (qualifier == null ? unqualifiedEntries : qualifiedEntries.get(qualifier));
+        Entries<T> baseList = snapshot.getEntries(qualifier);
         if (baseList == null)
             return null;
-        List<T> elementList = new ArrayList<T>(baseList.size());
-        for (JdpEntry<? extends T> e : baseList)
-            elementList.add(e.get());
+        List<T> elementList = new ArrayList<T>(baseList.size);
+        for (int i = 0; i < baseList.size; ++i)
+            elementList.add(baseList.get(i).get());
         return elementList;
     }
 
     /** Returns the list of matching classes for the given qualifier (or entries without a qualifier in case qualifier is null). */
     List<Class<? extends T>> getAllClasses(String qualifier) {
-        List<JdpEntry<? extends T>> baseList = (qualifier == null ? unqualifiedEntries : qualifiedEntries.get(qualifier));
+        Entries<T> baseList = snapshot.getEntries(qualifier);
         if (baseList == null)
             return null;
-        List<Class<? extends T>> elementList = new ArrayList<Class<? extends T>>(baseList.size());
-        for (JdpEntry<? extends T> e : baseList)
-            elementList.add(e.actualType);
+        List<Class<? extends T>> elementList = new ArrayList<Class<? extends T>>(baseList.size);
+        for (int i = 0; i < baseList.size; ++i)
+            elementList.add(baseList.get(i).actualType);
         return elementList;
     }
 
     /** Returns an instance of every matching class regardless of qualifiers. */
     Set<T> getAll() {
+        final Snapshot<T> current = snapshot;
         Set<T> result = new HashSet<T>();
-        for (JdpEntry<? extends T> e: unqualifiedEntries) {
-            result.add(e.get());
+        for (int i = 0; i < current.unqualifiedEntries.size; ++i) {
+            result.add(current.unqualifiedEntries.get(i).get());
         }
-        for (List<JdpEntry<? extends T>> ql : qualifiedEntries.values()) {
-            for (JdpEntry<? extends T> e: ql) {
-                result.add(e.get());
+        for (Entries<T> ql : current.qualifiedEntries.values()) {
+            for (int i = 0; i < ql.size; ++i) {
+                result.add(ql.get(i).get());
             }
         }
         return result;
@@ -183,13 +275,14 @@ final class JdpTypeEntry<T> {
 
     /** Returns the set of matching classes regardless of qualifiers. */
     Set<Class<? extends T>> getAllClasses() {
+        final Snapshot<T> current = snapshot;
         Set<Class<? extends T>> result = new HashSet<Class<? extends T>>();
-        for (JdpEntry<? extends T> e: unqualifiedEntries) {
-            result.add(e.actualType);
+        for (int i = 0; i < current.unqualifiedEntries.size; ++i) {
+            result.add(current.unqualifiedEntries.get(i).actualType);
         }
-        for (List<JdpEntry<? extends T>> ql : qualifiedEntries.values()) {
-            for (JdpEntry<? extends T> e: ql) {
-                result.add(e.actualType);
+        for (Entries<T> ql : current.qualifiedEntries.values()) {
+            for (int i = 0; i < ql.size; ++i) {
+                result.add(ql.get(i).actualType);
             }
         }
         return result;
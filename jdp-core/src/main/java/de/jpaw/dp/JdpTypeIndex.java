@@ -0,0 +1,111 @@
+package de.jpaw.dp;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/** The JdpTypeIndex stores the registry information per class: the JdpTypeEntry of a type, the entry of an autodetected class,
+ * and the entry of the class which specializes it.
+ *
+ * The information is attached to the Class object itself via a ClassValue, therefore a lookup neither hashes the class
+ * nor contends on a map shared by all threads, and the JIT can reduce it to a few dependent loads.
+ *
+ * A ClassValue cannot be cleared as a whole. Every slot is therefore created for a generation of the index, and clear()
+ * starts a new generation, which invalidates all existing slots at once, also the ones currently held by concurrent readers.
+ * The classes which received a slot are tracked in addition, for dump() and to detach the outdated slots.
+ * Modifications are serialized by the caller, which synchronizes on the index.
+ */
+final class JdpTypeIndex {
+    /** The registry information of a single class, valid for a single generation. */
+    private static final class Slot {
+        private final int generation;
+        private volatile JdpTypeEntry<?> typeEntry = null;          // entries for the class as a type
+        private volatile JdpEntry<?> autodetected = null;           // the entry of the class as an autodetected implementation
+        private volatile JdpEntry<?> specializedBy = null;          // the entry of the class which overrides this one via @Specializes
+
+        private Slot(int generation) {
+            this.generation = generation;
+        }
+    }
+
+    private volatile int generation = 0;
+    private final Set<Class<?>> classes = ConcurrentHashMap.newKeySet(1000);   // all classes which obtained a slot in the current generation
+    private final ClassValue<Slot> slots = new ClassValue<Slot>() {
+        @Override
+        protected Slot computeValue(Class<?> cls) {
+            return new Slot(generation);
+        }
+    };
+
+    /** Returns the slot of cls if it is valid for the current generation, else null. */
+    private Slot current(Class<?> cls) {
+        final Slot slot = slots.get(cls);
+        return slot.generation == generation ? slot : null;
+    }
+
+    /** Returns the slot of cls for modification, replacing an outdated one. Caller must hold the monitor of the index. */
+    private Slot writable(Class<?> cls) {
+        Slot slot = slots.get(cls);
+        if (slot.generation != generation) {
+            slots.remove(cls);
+            slot = slots.get(cls);
+        }
+        classes.add(cls);
+        return slot;
+    }
+
+    /** Returns the entries registered for type, or null. */
+    <T> JdpTypeEntry<T> getTypeEntry(Class<T> type) {
+        final Slot slot = current(type);
+        return slot == null ? null : (JdpTypeEntry<T>) slot.typeEntry;
+    }
+
+    /** Sets the entries of type. Caller must hold the monitor of the index. */
+    void putTypeEntry(Class<?> type, JdpTypeEntry<?> typeEntry) {
+        writable(type).typeEntry = typeEntry;
+    }
+
+    /** Returns the entry of an autodetected class, or null. */
+    JdpEntry<?> getAutodetected(Class<?> cls) {
+        final Slot slot = current(cls);
+        return slot == null ? null : slot.autodetected;
+    }
+
+    /** Sets the entry of an autodetected class, and returns the previous one (null if the class has not been registered before). */
+    synchronized JdpEntry<?> putAutodetected(Class<?> cls, JdpEntry<?> entry) {
+        final Slot slot = writable(cls);
+        final JdpEntry<?> previous = slot.autodetected;
+        slot.autodetected = entry;
+        return previous;
+    }
+
+    /** Returns the entry of the class which specializes cls, or null. */
+    JdpEntry<?> getSpecializedBy(Class<?> cls) {
+        final Slot slot = current(cls);
+        return slot == null ? null : slot.specializedBy;
+    }
+
+    /** Marks cls as overridden by the specializing entry. */
+    synchronized void putSpecializedBy(Class<?> cls, JdpEntry<?> entry) {
+        writable(cls).specializedBy = entry;
+    }
+
+    /** Returns all types which have entries. */
+    List<Class<?>> getTypes() {
+        final List<Class<?>> types = new ArrayList<Class<?>>(classes.size());
+        for (Class<?> cls : classes) {
+            if (getTypeEntry(cls) != null)
+                types.add(cls);
+        }
+        return types;
+    }
+
+    /** Removes all information. Slots obtained before are invalid afterwards. */
+    synchronized void clear() {
+        ++generation;
+        for (Class<?> cls : classes)
+            slots.remove(cls);      // detach the outdated slot, to release its entries
+        classes.clear();
+    }
+}
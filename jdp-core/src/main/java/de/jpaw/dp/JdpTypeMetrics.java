@@ -0,0 +1,63 @@
+package de.jpaw.dp;
+
+/** The usage counters of a single type, as part of a JdpMetrics snapshot.
+ * Lookups, failures and fallback hits refer to the type as requested, instantiations and scope gets to the type as implementation. */
+public final class JdpTypeMetrics {
+    private final String typeName;
+    private final long lookups;
+    private final long failures;
+    private final long fallbackHits;
+    private final long instantiations;
+    private final long constructionNanos;
+    private final long scopeGets;
+
+    JdpTypeMetrics(String typeName, long lookups, long failures, long fallbackHits, long instantiations, long constructionNanos, long scopeGets) {
+        this.typeName = typeName;
+        this.lookups = lookups;
+        this.failures = failures;
+        this.fallbackHits = fallbackHits;
+        this.instantiations = instantiations;
+        this.constructionNanos = constructionNanos;
+        this.scopeGets = scopeGets;
+    }
+
+    public String getTypeName() {
+        return typeName;
+    }
+
+    /** Returns the number of provider lookups via Jdp.get*(), getProvider() and JdpKeys. */
+    public long getLookups() {
+        return lookups;
+    }
+
+    /** Returns the number of lookups which did not find any provider. */
+    public long getFailures() {
+        return failures;
+    }
+
+    /** Returns the number of qualified lookups which found no implementation for the qualifier and were served by the global fallback (@Fallback @Any). */
+    public long getFallbackHits() {
+        return fallbackHits;
+    }
+
+    /** Returns the number of instances constructed by Jdp. */
+    public long getInstantiations() {
+        return instantiations;
+    }
+
+    /** Returns the total time spent in constructors, including the construction of instances injected during construction. */
+    public long getConstructionNanos() {
+        return constructionNanos;
+    }
+
+    /** Returns the number of requests to the PerThread, custom or structured scope of the type. */
+    public long getScopeGets() {
+        return scopeGets;
+    }
+
+    @Override
+    public String toString() {
+        return typeName + ": lookups=" + lookups + ", failures=" + failures + ", fallbackHits=" + fallbackHits
+          + ", instantiations=" + instantiations + ", constructionNanos=" + constructionNanos + ", scopeGets=" + scopeGets;
+    }
+}
@@ -1,7 +1,23 @@
 package de.jpaw.dp;
 
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
 /**
  * The Dependent scope defines that there is a new instance of this class for every thread.
+ *
+ * For virtual threads, which usually run a single task only, this can be changed by the virtualThreads policy.
+ * With VirtualThreadPolicy.POOLED, virtual threads borrow an instance from a pool of up to poolSize instances,
+ * and return it when the scope is closed for that thread (by Jdp.clearThreadContext()).
  */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.TYPE)
 public @interface PerThread {
+    /** Defines how instances are assigned to virtual threads. Platform threads always get their own instance. */
+    public VirtualThreadPolicy virtualThreads() default VirtualThreadPolicy.PER_THREAD;
+
+    /** The maximum number of idle instances kept for reuse by virtual threads, for VirtualThreadPolicy.POOLED. */
+    public int poolSize() default 64;
 }
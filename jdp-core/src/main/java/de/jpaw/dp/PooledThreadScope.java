@@ -0,0 +1,81 @@
+package de.jpaw.dp;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/** This class is a support class for the PerThread scope with VirtualThreadPolicy.POOLED.
+ * Platform threads get their own instance, as with ThreadScopeWithDelegate. Virtual threads borrow an idle instance from a bounded pool
+ * (or get a new one if the pool is empty), and return it when the scope is closed for them. If a virtual thread terminates without
+ * closing the scope, its instance is not reused, but just garbage collected.
+ */
+public class PooledThreadScope<T> extends ThreadScopeWithDelegate<T> {
+    private static final MethodHandle IS_VIRTUAL = isVirtualHandle();
+
+    private final BlockingQueue<T> idleInstances;
+
+    public PooledThreadScope(Provider<T> delegate, int poolSize) {
+        super(delegate);
+        this.idleInstances = new ArrayBlockingQueue<T>(poolSize > 0 ? poolSize : 1);
+    }
+
+    /** Returns a handle for Thread.isVirtual(), or a handle returning false for JVMs which do not support virtual threads. */
+    private static MethodHandle isVirtualHandle() {
+        final MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+        try {
+            return lookup.findVirtual(Thread.class, "isVirtual", MethodType.methodType(boolean.class));
+        } catch (NoSuchMethodException | IllegalAccessException e) {
+            return MethodHandles.dropArguments(MethodHandles.constant(boolean.class, false), 0, Thread.class);
+        }
+    }
+
+    /** Returns true if the thread is a virtual thread. */
+    public static boolean isVirtual(Thread thread) {
+        try {
+            return (boolean) IS_VIRTUAL.invokeExact(thread);
+        } catch (Throwable e) {
+            return false;   // cannot happen, isVirtual() does not throw
+        }
+    }
+
+    /** Returns true if the instances of thread are borrowed from the pool. These are the virtual threads. */
+    protected boolean usesPool(Thread thread) {
+        return isVirtual(thread);
+    }
+
+    @Override
+    protected T newInstance() {
+        if (usesPool(Thread.currentThread())) {
+            final T idle = idleInstances.poll();
+            if (idle != null)
+                return idle;
+        }
+        return super.newInstance();
+    }
+
+    /** Returns the instance to the pool if it has been used by a thread using the pool and the pool is not full. */
+    private boolean recycle(T instance) {
+        return instance != null && usesPool(Thread.currentThread()) && idleInstances.offer(instance);
+    }
+
+    @Override
+    public void close() {
+        final T current = peek();
+        super.close();
+        recycle(current);
+    }
+
+    @Override
+    public T release() {
+        final T current = peek();
+        super.close();
+        return recycle(current) ? null : current;   // pooled instances must not be disposed
+    }
+
+    /** Returns the number of idle instances currently available for reuse. */
+    public int getIdleCount() {
+        return idleInstances.size();
+    }
+}
@@ -1,6 +1,12 @@
 package de.jpaw.dp;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
 import org.reflections.Reflections;
 
@@ -32,4 +38,37 @@ public class ReflectionsPackageCache {
         }
         return result;
     }
+
+    /** Scan a list of package names concurrently, using up to maxThreads threads, and returns the array of Reflections.
+     * The array is in the order of the package names, independent of the order the scans complete. */
+    public static Reflections [] getAllParallel(int maxThreads, String ... packagename) {
+        if (maxThreads <= 1 || packagename.length <= 1)
+            return getAll(packagename);
+        final ExecutorService executor = JdpThreadFactory.newPool("jdp-scan", maxThreads, packagename.length);
+        try {
+            final List<Future<Reflections>> futures = new ArrayList<Future<Reflections>>(packagename.length);
+            for (final String p : packagename) {
+                futures.add(executor.submit(new Callable<Reflections>() {
+                    @Override
+                    public Reflections call() {
+                        return get(p);
+                    }
+                }));
+            }
+            Reflections [] result = new Reflections [packagename.length];
+            for (int i = 0; i < packagename.length; ++i) {
+                result[i] = futures.get(i).get();
+            }
+            return result;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while scanning packages", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException)
+                throw (RuntimeException) e.getCause();
+            throw new IllegalStateException("Scanning packages failed", e.getCause());
+        } finally {
+            executor.shutdown();
+        }
+    }
 }
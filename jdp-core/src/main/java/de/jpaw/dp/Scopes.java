@@ -1,5 +1,5 @@
 package de.jpaw.dp;
 
 public enum Scopes {
-    EAGER_SINGLETON, LAZY_SINGLETON, DEPENDENT, PER_THREAD, CUSTOM
+    EAGER_SINGLETON, LAZY_SINGLETON, DEPENDENT, PER_THREAD, CUSTOM, STRUCTURED
 }
@@ -1,8 +1,17 @@
 package de.jpaw.dp;
 
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
 /**
  * The Singleton scope defines that there is a single instance of this class constructed per JVM.
- * The instance is constructed when it is needed the first time.
+ * The instance is constructed when it is needed the first time, or by Jdp.init() if eager is set (or Jdp.eagerSingletons is true).
  */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.TYPE)
 public @interface Singleton {
+    /** If true, the instance is constructed during Jdp.init(), before the startup classes run. */
+    public boolean eager() default false;
 }
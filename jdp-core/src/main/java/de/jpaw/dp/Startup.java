@@ -9,9 +9,15 @@ import java.lang.annotation.Target;
  * Classes annotated with @Startup will be loaded after all other Jdp initalization code for the specified package prefix. The classes must implement a public
  * static void method "onStartup", which will be invoked. In case multiple classes are annotated, the methods are invoked in ascending order of the annotation
  * parameter.
+ *
+ * If Jdp.startupThreads is set to a value greater than 1, independent stages run concurrently. A stage which lists other startup classes in dependsOn
+ * waits for those only. A stage without dependencies waits for all stages of a lower priority band (see Jdp.startupPriorityBand).
  */
 @Retention(RetentionPolicy.RUNTIME)
 @Target(ElementType.TYPE)
 public @interface Startup {
     public int value();
+
+    /** The startup classes which must have completed before this one is run, when stages run concurrently. */
+    public Class<?>[] dependsOn() default {};
 }
@@ -0,0 +1,17 @@
+package de.jpaw.dp;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * The Structured scope defines that the instance of this class is bound for the duration of a block of code, by
+ * Jdp.where(type, instance).run(block). Within the block, Jdp returns the bound instance. Other threads see it only while they run
+ * a task with the JdpContext captured within the block (see JdpContext.propagating()).
+ * Outside of any binding, no instance is available. Jdp never constructs instances of this scope.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.TYPE)
+public @interface Structured {
+}
@@ -0,0 +1,57 @@
+package de.jpaw.dp;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import de.jpaw.dp.exceptions.StructuredScopeBindingException;
+
+/** Custom scope which returns the value bound to it by the innermost enclosing JdpBindings.run() or call(), or null.
+ *
+ * Every scope owns a fixed slot in the binding frames, therefore a lookup is a single array access.
+ * The slot of a class of the Structured scope is attached to the class, therefore the scopes created for it after a Jdp.reset()
+ * reuse it, and the frames do not grow with every rescan. Explicitly created scopes obtain a new slot each.
+ * Bindings are immutable: they cannot be modified by set(), but only be shadowed by nested bindings.
+ */
+public class StructuredScope<T> implements CustomScope<T> {
+    private static final AtomicInteger slotCounter = new AtomicInteger();
+    private static final ClassValue<Integer> slotOfType = new ClassValue<Integer>() {
+        @Override
+        protected Integer computeValue(Class<?> type) {
+            return slotCounter.getAndIncrement();
+        }
+    };
+
+    final int slot;
+    private final Class<T> type;    // the class of the Structured scope, or null for explicitly created scopes
+
+    /** Creates a scope which is not associated with a class, to be used with Jdp.where(scope, value). */
+    public StructuredScope() {
+        this.slot = slotCounter.getAndIncrement();
+        this.type = null;
+    }
+
+    /** Creates the scope of a class of the Structured scope. */
+    public StructuredScope(Class<T> type) {
+        this.slot = slotOfType.get(type).intValue();
+        this.type = type;
+    }
+
+    @Override
+    public T get() {
+        return (T) JdpBindings.lookup(slot);
+    }
+
+    /** Returns true if a value is bound to this scope for the current thread. */
+    public boolean isBound() {
+        return JdpBindings.lookup(slot) != null;
+    }
+
+    @Override
+    public void set(T instance) {
+        throw type == null ? new StructuredScopeBindingException() : new StructuredScopeBindingException(type);
+    }
+
+    @Override
+    public void close() {
+        // nothing to do, bindings end with the block they have been established for
+    }
+}
@@ -0,0 +1,26 @@
+package de.jpaw.dp;
+
+/** Internal interface of the scopes which hold a separate value per thread.
+ * Populating such a scope registers it for the current thread, which allows Jdp.clearThreadContext() to close all of them. */
+interface ThreadBoundScope<T> {
+    /** Returns the value of the current thread, or null, without creating one. */
+    T peek();
+
+    /** Removes the value of the current thread. */
+    void close();
+
+    /** Sets the value of the current thread, or removes it if value is null, without any checks or disposal.
+     * Used to restore propagated values. */
+    void restore(T value);
+
+    /** Called after Jdp.clearThreadContext() has removed the scope from the scopes registered for the current thread. */
+    default void deregistered() {
+    }
+
+    /** Removes the value of the current thread and returns it, if the caller is responsible to dispose it, else null. */
+    default T release() {
+        final T current = peek();
+        close();
+        return current;
+    }
+}
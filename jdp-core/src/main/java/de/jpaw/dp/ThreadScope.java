@@ -1,11 +1,35 @@
 package de.jpaw.dp;
 
-public class ThreadScope<T> extends ThreadLocal<T> implements CustomScope<T> {
+public class ThreadScope<T> extends ThreadLocal<T> implements CustomScope<T>, ThreadBoundScope<T> {
     public ThreadScope() {
     }
 
+    @Override
+    public void set(T instance) {
+        super.set(instance);
+        if (instance != null)
+            JdpThreadContext.register(this);
+    }
+
+    @Override
+    public T peek() {
+        return super.get();
+    }
+
     @Override
     public void close() {
         remove();
+        JdpThreadContext.deregister(this);
+    }
+
+    @Override
+    public void restore(T value) {
+        if (value == null) {
+            remove();
+            JdpThreadContext.deregister(this);
+        } else {
+            super.set(value);
+            JdpThreadContext.register(this);
+        }
     }
 }
@@ -3,7 +3,7 @@ package de.jpaw.dp;
 /** This class is a support class for the PerThread scope.
  * The delegate passed in the constructor is similar to a dependent scope provider, this class caches instances per thread.
  */
-public class ThreadScopeWithDelegate<T> extends ThreadLocal<T> implements CustomScope<T> {
+public class ThreadScopeWithDelegate<T> extends ThreadLocal<T> implements CustomScope<T>, ThreadBoundScope<T> {
     private final Provider<T> delegate;
 
     public ThreadScopeWithDelegate(Provider<T> delegate) {
@@ -17,13 +17,42 @@ public class ThreadScopeWithDelegate<T> extends ThreadLocal<T> implements Custom
         if (current != null)
             return current;
         // no value is stored, but we have a delegate
-        current = delegate.get();
+        current = newInstance();
         set(current);
         return current;
     }
 
+    /** Obtains the instance for a thread which does not have one yet. */
+    protected T newInstance() {
+        return delegate.get();
+    }
+
+    @Override
+    public void set(T instance) {
+        super.set(instance);
+        if (instance != null)
+            JdpThreadContext.register(this);
+    }
+
+    @Override
+    public T peek() {
+        return super.get();
+    }
+
     @Override
     public void close() {
         remove();
+        JdpThreadContext.deregister(this);
+    }
+
+    @Override
+    public void restore(T value) {
+        if (value == null) {
+            remove();
+            JdpThreadContext.deregister(this);
+        } else {
+            super.set(value);
+            JdpThreadContext.register(this);
+        }
     }
 }
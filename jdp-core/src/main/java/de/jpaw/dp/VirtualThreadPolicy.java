@@ -0,0 +1,11 @@
+package de.jpaw.dp;
+
+/** Defines how the PerThread scope assigns instances to virtual threads. */
+public enum VirtualThreadPolicy {
+    /** Every virtual thread gets its own instance, same as platform threads. */
+    PER_THREAD,
+
+    /** Virtual threads borrow an instance from a bounded pool, and return it when the scope is closed for the thread.
+     * Instances must not keep any state between uses. */
+    POOLED
+}
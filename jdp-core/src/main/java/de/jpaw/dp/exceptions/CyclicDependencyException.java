@@ -0,0 +1,10 @@
+package de.jpaw.dp.exceptions;
+
+/** Thrown when the construction of a singleton requires the singleton itself, directly or indirectly. */
+public class CyclicDependencyException extends JdpException {
+    private static final long serialVersionUID = 8914500842486539026L;
+
+    public CyclicDependencyException(Class<?> type) {
+        super(type.getCanonicalName() + " is required during its own construction (cyclic dependency)", null);
+    }
+}
@@ -0,0 +1,10 @@
+package de.jpaw.dp.exceptions;
+
+/** Thrown when the dependencies declared by @Startup classes form a cycle. */
+public class CyclicStartupDependencyException extends JdpException {
+    private static final long serialVersionUID = 8914500842486539027L;
+
+    public CyclicStartupDependencyException(Class<?> type) {
+        super("Startup of " + type.getCanonicalName() + " depends on itself (cyclic dependency)", null);
+    }
+}
@@ -0,0 +1,10 @@
+package de.jpaw.dp.exceptions;
+
+/** Thrown by Jdp.init() if eager singletons could not be constructed. Further failures are attached as suppressed exceptions. */
+public class EagerSingletonInstantiationException extends JdpException {
+    private static final long serialVersionUID = 8914500842486539029L;
+
+    public EagerSingletonInstantiationException(Class<?> type, Throwable cause) {
+        super(cause, type.getCanonicalName());
+    }
+}
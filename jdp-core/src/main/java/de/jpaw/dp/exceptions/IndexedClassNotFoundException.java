@@ -0,0 +1,10 @@
+package de.jpaw.dp.exceptions;
+
+/** Thrown when a class listed in a META-INF/jdp/index resource cannot be loaded. */
+public class IndexedClassNotFoundException extends JdpException {
+    private static final long serialVersionUID = 8914500842486539024L;
+
+    public IndexedClassNotFoundException(String classname, Throwable cause) {
+        super(cause, classname);
+    }
+}
@@ -0,0 +1,10 @@
+package de.jpaw.dp.exceptions;
+
+/** Thrown when a class cannot be instantiated via its no-args constructor. */
+public class InstantiationFailedException extends JdpException {
+    private static final long serialVersionUID = 8914500842486539025L;
+
+    public InstantiationFailedException(Class<?> type, Throwable cause) {
+        super(cause, type.getCanonicalName());
+    }
+}
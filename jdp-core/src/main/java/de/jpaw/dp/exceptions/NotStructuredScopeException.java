@@ -0,0 +1,10 @@
+package de.jpaw.dp.exceptions;
+
+/** Thrown when a value should be bound to a type whose provider is not a structured scope. */
+public class NotStructuredScopeException extends JdpException {
+    private static final long serialVersionUID = 8914500842486539028L;
+
+    public NotStructuredScopeException(Class<?> type) {
+        super(type.getCanonicalName() + " is not of the Structured scope, values cannot be bound to it", null);
+    }
+}
@@ -0,0 +1,16 @@
+package de.jpaw.dp.exceptions;
+
+/** Thrown when an instance should be bound to a type of the Structured scope. Values of such a type can only be bound for the duration
+ * of a block, by Jdp.where(type, value).run(block). */
+public class StructuredScopeBindingException extends JdpException {
+    private static final long serialVersionUID = -3207146630812095528L;
+
+    public StructuredScopeBindingException(Class<?> type) {
+        super(type.getCanonicalName() + " is of the Structured scope, bind its values by Jdp.where("
+          + type.getSimpleName() + ".class, value).run(...) instead", null);
+    }
+
+    public StructuredScopeBindingException() {
+        super("Values of a structured scope can only be bound by Jdp.where(scope, value).run(...)", null);
+    }
+}
@@ -0,0 +1,93 @@
+package de.jpaw.dp.jfr;
+
+import java.util.List;
+
+import de.jpaw.dp.JdpFlightRecorder;
+import de.jpaw.dp.Scopes;
+import jdk.jfr.EventType;
+
+/** Emits the Jdp events to the Java Flight Recorder. Instantiated by JdpFlightRecorder, if the JVM provides jdk.jfr. */
+public final class JdpEventRecorder extends JdpFlightRecorder {
+    private final EventType instantiationType = EventType.getEventType(JdpInstantiationEvent.class);
+
+    @Override
+    protected boolean isInstantiationEnabled() {
+        return instantiationType.isEnabled();
+    }
+
+    @Override
+    protected Object beginInstantiation() {
+        final JdpInstantiationEvent event = new JdpInstantiationEvent();
+        event.begin();
+        return event;
+    }
+
+    @Override
+    protected void commitInstantiation(Object started, Class<?> type, Scopes scope, List<String> qualifiers) {
+        final JdpInstantiationEvent event = (JdpInstantiationEvent) started;
+        event.end();
+        if (event.shouldCommit()) {
+            event.type = type;
+            event.scope = scope.name();
+            event.qualifier = qualifiers == null || qualifiers.isEmpty() ? null : String.join(",", qualifiers);
+            event.commit();
+        }
+    }
+
+    @Override
+    protected Object beginScan() {
+        final JdpScanEvent event = new JdpScanEvent();
+        event.begin();
+        return event;
+    }
+
+    @Override
+    protected void commitScan(Object started, String packagePrefix, String source, int classes) {
+        final JdpScanEvent event = (JdpScanEvent) started;
+        event.end();
+        if (event.shouldCommit()) {
+            event.packagePrefix = packagePrefix;
+            event.source = source;
+            event.classes = classes;
+            event.commit();
+        }
+    }
+
+    @Override
+    protected Object beginStartup() {
+        final JdpStartupEvent event = new JdpStartupEvent();
+        event.begin();
+        return event;
+    }
+
+    @Override
+    protected void commitStartup(Object started, Class<?> type, int stage, boolean dynamic, boolean failed) {
+        final JdpStartupEvent event = (JdpStartupEvent) started;
+        event.end();
+        if (event.shouldCommit()) {
+            event.type = type;
+            event.stage = stage;
+            event.dynamic = dynamic;
+            event.failed = failed;
+            event.commit();
+        }
+    }
+
+    @Override
+    protected Object beginShutdown() {
+        final JdpShutdownEvent event = new JdpShutdownEvent();
+        event.begin();
+        return event;
+    }
+
+    @Override
+    protected void commitShutdown(Object started, Class<?> type, boolean failed) {
+        final JdpShutdownEvent event = (JdpShutdownEvent) started;
+        event.end();
+        if (event.shouldCommit()) {
+            event.type = type;
+            event.failed = failed;
+            event.commit();
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package de.jpaw.dp.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Threshold;
+
+/** Recorded when Jdp constructs an instance of a singleton, dependent or per thread class.
+ * The duration includes the construction of dependencies which are injected by the constructor.
+ * The default threshold of 1 ms suppresses the vast majority of dependent instantiations, it can be lowered in the recording settings. */
+@Name("de.jpaw.dp.Instantiation")
+@Label("Jdp Instantiation")
+@Category("Jdp")
+@Description("Construction of an instance by a Jdp provider")
+@Threshold("1 ms")
+public final class JdpInstantiationEvent extends jdk.jfr.Event {
+    @Label("Type")
+    public Class<?> type;
+
+    @Label("Scope")
+    public String scope;
+
+    @Label("Qualifier")
+    public String qualifier;
+}
@@ -0,0 +1,24 @@
+package de.jpaw.dp.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/** Recorded for the scan of a package prefix, including the registration of the classes found. */
+@Name("de.jpaw.dp.Scan")
+@Label("Jdp Scan")
+@Category("Jdp")
+@Description("Scan of a package prefix for annotated classes, and their registration")
+public final class JdpScanEvent extends jdk.jfr.Event {
+    @Label("Package Prefix")
+    public String packagePrefix;
+
+    @Label("Source")
+    @Description("index (build time index), classpath (scanned now), prescanned (scanned concurrently before), or excluded")
+    public String source;
+
+    @Label("Classes")
+    @Description("Number of annotated classes found")
+    public int classes;
+}
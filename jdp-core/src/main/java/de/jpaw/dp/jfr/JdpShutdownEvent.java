@@ -0,0 +1,19 @@
+package de.jpaw.dp.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/** Recorded for every onShutdown() call performed by Jdp.shutdown(). */
+@Name("de.jpaw.dp.Shutdown")
+@Label("Jdp Shutdown")
+@Category("Jdp")
+@Description("Execution of the onShutdown() method of a startup bean")
+public final class JdpShutdownEvent extends jdk.jfr.Event {
+    @Label("Type")
+    public Class<?> type;
+
+    @Label("Failed")
+    public boolean failed;
+}
@@ -0,0 +1,26 @@
+package de.jpaw.dp.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/** Recorded for every @Startup stage, covering the instantiation of the bean (dynamic variant) and its onStartup() method. */
+@Name("de.jpaw.dp.Startup")
+@Label("Jdp Startup Stage")
+@Category("Jdp")
+@Description("Execution of the onStartup() method of a class annotated with @Startup")
+public final class JdpStartupEvent extends jdk.jfr.Event {
+    @Label("Type")
+    public Class<?> type;
+
+    @Label("Stage")
+    public int stage;
+
+    @Label("Dynamic")
+    @Description("True if onStartup() is invoked on an instance, false if it is a static method")
+    public boolean dynamic;
+
+    @Label("Failed")
+    public boolean failed;
+}
@@ -4,17 +4,70 @@ import org.eclipse.xtend.lib.macro.AbstractFieldProcessor
 import org.eclipse.xtend.lib.macro.Active
 import org.eclipse.xtend.lib.macro.TransformationContext
 import org.eclipse.xtend.lib.macro.declaration.MutableFieldDeclaration
+import org.eclipse.xtend.lib.macro.declaration.TypeReference
+import org.eclipse.xtend.lib.macro.declaration.Visibility
 import java.util.List
 
-@Active(InjectProcessor) annotation Inject {}
+/** Injects the field. With cached = true, the provider is resolved once per class and qualifier, by a static JdpKey
+ * which is shared by all cached fields of that type and qualifier in the class. This is intended for classes which are instantiated frequently.
+ * Fields annotated with @Any are not cached. */
+@Active(InjectProcessor) annotation Inject {
+    boolean cached = false
+}
 
 class InjectProcessor extends AbstractFieldProcessor {
+    static final String LETTERS_AND_DIGITS = "0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz"
 
     def private static String skipGenericsTypeParameters(String it) {
         val idx = indexOf('<')
         return if (idx >= 0) substring(0, idx) else it
     }
 
+    /** Appends s to sb as part of a Java identifier. Letters and digits are kept, dots become underscores,
+     * and any other character becomes a dollar sign followed by its 4 hex digits, which keeps the mapping unique. */
+    def private static void encode(StringBuilder sb, String s) {
+        for (var i = 0; i < s.length; i++) {
+            val c = s.charAt(i)
+            if (LETTERS_AND_DIGITS.indexOf(c) >= 0)
+                sb.append(c)
+            else if (c.toString == ".")
+                sb.append("_")
+            else
+                sb.append(String.format("$%04X", Integer.valueOf(c)))
+        }
+    }
+
+    /** Returns the name of the static JdpKey field for the type and qualifier. It depends on nothing else, and different keys get different names.
+     * The qualifier is separated by "$$", which cannot be produced by the encoding of the type. */
+    def private static String keyName(TypeReference keyType, String qualifier) {
+        val sb = new StringBuilder("JDP_KEY_")
+        encode(sb, keyType.type.qualifiedName)
+        if (qualifier !== null) {
+            sb.append("$$")
+            encode(sb, qualifier)
+        }
+        return sb.toString
+    }
+
+    /** Adds the static JdpKey for the type and qualifier to the class of the field, unless it exists already, and returns its name. */
+    def private static String addKey(MutableFieldDeclaration fld, TypeReference keyType, String qualifierText, String qualifier, extension TransformationContext context) {
+        val name = keyName(keyType, qualifier)
+        val cls = fld.declaringType
+        if (cls.findDeclaredField(name) === null) {
+            val jdpClass = Jdp.newTypeReference
+            val rawType = keyType.type.newTypeReference
+            cls.addField(name) [
+                setStatic(true)
+                setFinal(true)
+                visibility = Visibility.PRIVATE
+                type = JdpKey.newTypeReference(rawType)
+                docComment = '''JdpKey of «keyType.type.qualifiedName»«IF qualifier !== null» qualified by "«qualifier»"«ENDIF»'''.toString
+                initializer = [ '''«toJavaCode(jdpClass)».key(«toJavaCode(rawType).skipGenericsTypeParameters».class«qualifierText»)''' ]
+            ]
+        }
+        return name
+    }
+
     override doTransform(MutableFieldDeclaration fld, extension TransformationContext context) {
         val provider = Provider.newTypeReference.type
         val namedAnno = Named.newTypeReference.type
@@ -26,6 +79,7 @@ class InjectProcessor extends AbstractFieldProcessor {
         val qualifier = fld.findAnnotation(namedAnno)?.getValue("value") as String
         val qualifierText = if (qualifier !== null) ''', "«qualifier»"'''
         val anyText = if (isAny) "All" else if (isOptional) "Optional" else "Required"
+        val isCached = fld.findAnnotation(Inject.newTypeReference.type).getBooleanValue("cached")
 
         if (isAny && isOptional) {
             fld.addError('''Cannot use @Any and @Optional on the same field''')
@@ -47,6 +101,23 @@ class InjectProcessor extends AbstractFieldProcessor {
 //            type args are «fld.type.actualTypeArguments.map[simpleName].join(':')» !
 //            simple name is «fld.simpleName», type simple name is «fld.type.simpleName»
 //            type is «fld.type.type.qualifiedName»'''
+        if (isCached && !isAny) {
+            if (fld.type.type == provider) {
+                // the key itself is the provider, it resolves again after a rebinding. For generic types, the key is raw.
+                // checked() fails at construction if there is no provider, same as Jdp.getProvider()
+                val providedType = fld.type.actualTypeArguments.get(0)
+                val key = addKey(fld, providedType, qualifierText, qualifier, context)
+                fld.initializer = if (providedType.actualTypeArguments.empty)
+                    [ '''«key».checked()''' ]
+                else
+                    [ '''(«toJavaCode(provider.newTypeReference)») «key».checked()''' ]
+            } else {
+                val key = addKey(fld, theType, qualifierText, qualifier, context)
+                fld.initializer = [ '''«key».«IF isOptional»getOptional«ELSE»get«ENDIF»()''' ]
+            }
+            fld.final = true
+            return
+        }
         fld.initializer = if (fld.type.type == provider)
             [ '''«toJavaCode(jdpClass)».getProvider(«toJavaCode(fld.type.actualTypeArguments.get(0))».class«qualifierText»)''']
         else
@@ -0,0 +1,170 @@
+package de.jpaw.dp.processor;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.tools.Diagnostic;
+import javax.tools.FileObject;
+import javax.tools.StandardLocation;
+
+/** Writes the index of all classes relevant for Jdp into META-INF/jdp/index, to avoid classpath scanning at startup.
+ *
+ * Every line of the index describes one class, the fields are separated by a single blank:
+ * <pre>
+ *   {scope} {binary class name}
+ *   STARTUP {order} {binary class name}
+ *   PACKAGE {package name} {number of top level classes}
+ * </pre>
+ * The scope is the name of the de.jpaw.dp.Scopes instance Jdp would assign when scanning the class.
+ * Same as with the classpath scanner, classes which inherit a scope annotation from a superclass or interface are listed as well.
+ * The PACKAGE lines list every package compiled together with the index, also packages without any relevant class.
+ * Jdp uses the index only for packages whose class files all have been compiled by this processor, and scans all others,
+ * for example packages of modules built without the processor, or packages of which an incremental build only compiled some classes.
+ * Lines starting with # are comments.
+ */
+@SupportedAnnotationTypes("*")
+public class JdpIndexProcessor extends AbstractProcessor {
+    public static final String INDEX_RESOURCE = "META-INF/jdp/index";
+    public static final String STARTUP = "STARTUP";
+    public static final String PACKAGE = "PACKAGE";
+
+    private static final String STARTUP_ANNOTATION = "de.jpaw.dp.Startup";
+    private static final Map<String, String> SCOPE_ANNOTATIONS = new TreeMap<String, String>();
+    static {
+        SCOPE_ANNOTATIONS.put("de.jpaw.dp.Singleton",               "LAZY_SINGLETON");
+        SCOPE_ANNOTATIONS.put("de.jpaw.dp.Dependent",               "DEPENDENT");
+        SCOPE_ANNOTATIONS.put("de.jpaw.dp.PerThread",               "PER_THREAD");
+        SCOPE_ANNOTATIONS.put("de.jpaw.dp.ScopeWithCustomProvider", "CUSTOM");
+        SCOPE_ANNOTATIONS.put("de.jpaw.dp.Structured",              "STRUCTURED");
+    }
+
+    // sorted by class name, to obtain a reproducible index
+    private final Map<String, String> scopedClasses = new TreeMap<String, String>();
+    private final Map<String, Integer> startupClasses = new TreeMap<String, Integer>();
+    private final Map<String, Integer> packages = new TreeMap<String, Integer>();      // number of top level classes per package
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        if (roundEnv.processingOver()) {
+            if (!packages.isEmpty())
+                writeIndex();
+        } else {
+            for (Element e : roundEnv.getRootElements()) {
+                countClass(e);
+                collect(e);
+            }
+        }
+        return false;   // do not claim any annotations
+    }
+
+    /** Counts a top level class (or interface, enum, annotation) per package. Every one of these results in a class file whose name contains no $. */
+    private void countClass(Element e) {
+        if (!e.getKind().isClass() && !e.getKind().isInterface())
+            return;
+        final PackageElement pkg = processingEnv.getElementUtils().getPackageOf(e);
+        if (pkg.isUnnamed())
+            return;
+        final String name = pkg.getQualifiedName().toString();
+        final Integer count = packages.get(name);
+        packages.put(name, count == null ? 1 : count + 1);
+    }
+
+    private void collect(Element e) {
+        if (e.getKind() == ElementKind.CLASS) {
+            final TypeElement te = (TypeElement) e;
+            final String classname = processingEnv.getElementUtils().getBinaryName(te).toString();
+            final String scope = findScope(te);
+            if (scope != null)
+                scopedClasses.put(classname, scope);
+            final AnnotationMirror startup = findAnnotation(te, STARTUP_ANNOTATION);
+            if (startup != null)
+                startupClasses.put(classname, (Integer) getValue(startup));
+        }
+        for (Element inner : e.getEnclosedElements()) {
+            if (inner.getKind() == ElementKind.CLASS || inner.getKind() == ElementKind.INTERFACE)
+                collect(inner);
+        }
+    }
+
+    /** Determines the scope by the class' own annotation, or the nearest one of its superclasses and interfaces. */
+    private String findScope(TypeElement te) {
+        for (AnnotationMirror am : te.getAnnotationMirrors()) {
+            final String scope = SCOPE_ANNOTATIONS.get(((TypeElement) am.getAnnotationType().asElement()).getQualifiedName().toString());
+            if (scope != null)
+                return scope;
+        }
+        String scope = findScope(te.getSuperclass());
+        if (scope != null)
+            return scope;
+        for (TypeMirror i : te.getInterfaces()) {
+            scope = findScope(i);
+            if (scope != null)
+                return scope;
+        }
+        return null;
+    }
+
+    private String findScope(TypeMirror tm) {
+        if (tm.getKind() != TypeKind.DECLARED)
+            return null;
+        return findScope((TypeElement) ((DeclaredType) tm).asElement());
+    }
+
+    private static AnnotationMirror findAnnotation(TypeElement te, String annotationName) {
+        for (AnnotationMirror am : te.getAnnotationMirrors()) {
+            if (((TypeElement) am.getAnnotationType().asElement()).getQualifiedName().contentEquals(annotationName))
+                return am;
+        }
+        return null;
+    }
+
+    private static Object getValue(AnnotationMirror am) {
+        for (Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> e : am.getElementValues().entrySet()) {
+            if (e.getKey().getSimpleName().contentEquals("value"))
+                return e.getValue().getValue();
+        }
+        return null;
+    }
+
+    private void writeIndex() {
+        try {
+            final FileObject file = processingEnv.getFiler().createResource(StandardLocation.CLASS_OUTPUT, "", INDEX_RESOURCE);
+            final Writer w = file.openWriter();
+            try {
+                w.write("# Jdp class index, generated by " + getClass().getCanonicalName() + "\n");
+                for (Map.Entry<String, String> e : scopedClasses.entrySet())
+                    w.write(e.getValue() + " " + e.getKey() + "\n");
+                for (Map.Entry<String, Integer> e : startupClasses.entrySet())
+                    w.write(STARTUP + " " + e.getValue() + " " + e.getKey() + "\n");
+                for (Map.Entry<String, Integer> e : packages.entrySet())
+                    w.write(PACKAGE + " " + e.getKey() + " " + e.getValue() + "\n");
+            } finally {
+                w.close();
+            }
+        } catch (IOException e) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, "Cannot write " + INDEX_RESOURCE + ": " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,232 @@
+package de.jpaw.dp.processor;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.tools.Diagnostic;
+import javax.tools.JavaFileObject;
+
+/** Generates injection code for Java classes with fields annotated by de.jpaw.dp.Inject, equivalent to the xtend InjectProcessor.
+ *
+ * For every such class Foo, a class Foo_JdpInjector is written into the same package. Its method inject(Foo) assigns all injected fields,
+ * and is intended to be called first thing in the constructors of Foo:
+ * <pre>
+ *   public Foo() {
+ *       Foo_JdpInjector.inject(this);
+ *   }
+ * </pre>
+ * Fields are resolved by static JdpKeys, one per type and qualifier, therefore constructing instances neither performs
+ * registry lookups nor uses reflection. Injected fields of superclasses are assigned by the injectors of the superclasses,
+ * which their constructors invoke.
+ *
+ * The field annotations are interpreted in the same way as by the xtend InjectProcessor:
+ * <ul>
+ * <li>@Named(qualifier) selects the qualifier</li>
+ * <li>@Optional assigns null if no implementation exists, instead of throwing an exception</li>
+ * <li>@Any requires a field of type List, which receives all implementations (not cached, same as in xtend)</li>
+ * <li>fields of type Provider receive the key itself, which resolves again after a rebinding. A missing provider fails at construction.</li>
+ * </ul>
+ * Injected fields must not be private or static, and must be of a reference type. Final fields are not assigned, with a warning,
+ * because these must be initialized by the class itself (which the xtend InjectProcessor does).
+ */
+@SupportedAnnotationTypes(JdpInjectProcessor.INJECT)
+public class JdpInjectProcessor extends AbstractProcessor {
+    public static final String INJECTOR_SUFFIX = "_JdpInjector";
+
+    static final String INJECT   = "de.jpaw.dp.Inject";
+    static final String NAMED    = "de.jpaw.dp.Named";
+    static final String OPTIONAL = "de.jpaw.dp.Optional";
+    static final String ANY      = "de.jpaw.dp.Any";
+    static final String PROVIDER = "de.jpaw.dp.Provider";
+    static final String JDP      = "de.jpaw.dp.Jdp";
+    static final String JDP_KEY  = "de.jpaw.dp.JdpKey";
+    static final String LIST     = "java.util.List";
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        final TypeElement inject = processingEnv.getElementUtils().getTypeElement(INJECT);
+        if (inject == null)
+            return false;
+        // collect the fields per class, in source order
+        final Map<TypeElement, List<VariableElement>> fieldsByClass = new LinkedHashMap<TypeElement, List<VariableElement>>();
+        for (Element e : roundEnv.getElementsAnnotatedWith(inject)) {
+            if (e.getKind() != ElementKind.FIELD)
+                continue;
+            if (e.getModifiers().contains(Modifier.FINAL)) {
+                processingEnv.getMessager().printMessage(Diagnostic.Kind.WARNING,
+                  "Final field is not injected by " + getClass().getSimpleName() + ", it must be initialized by the class itself", e);
+                continue;
+            }
+            final TypeElement cls = (TypeElement) e.getEnclosingElement();
+            List<VariableElement> fields = fieldsByClass.get(cls);
+            if (fields == null) {
+                fields = new ArrayList<VariableElement>();
+                fieldsByClass.put(cls, fields);
+            }
+            fields.add((VariableElement) e);
+        }
+        for (Map.Entry<TypeElement, List<VariableElement>> e : fieldsByClass.entrySet())
+            writeInjector(e.getKey(), e.getValue());
+        return false;   // do not claim the annotation
+    }
+
+    private static AnnotationMirror findAnnotation(Element e, String annotationName) {
+        for (AnnotationMirror am : e.getAnnotationMirrors()) {
+            if (((TypeElement) am.getAnnotationType().asElement()).getQualifiedName().contentEquals(annotationName))
+                return am;
+        }
+        return null;
+    }
+
+    private static String getValue(AnnotationMirror am) {
+        for (Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> e : am.getElementValues().entrySet()) {
+            if (e.getKey().getSimpleName().contentEquals("value"))
+                return (String) e.getValue().getValue();
+        }
+        return null;
+    }
+
+    private static boolean isOfType(TypeMirror type, String qualifiedName) {
+        return type.getKind() == TypeKind.DECLARED
+          && ((TypeElement) ((DeclaredType) type).asElement()).getQualifiedName().contentEquals(qualifiedName);
+    }
+
+    private static TypeMirror firstTypeArgument(TypeMirror type) {
+        final List<? extends TypeMirror> args = ((DeclaredType) type).getTypeArguments();
+        return args.isEmpty() ? null : args.get(0);
+    }
+
+    private static boolean isGeneric(TypeMirror type) {
+        return type.getKind() == TypeKind.DECLARED && !((DeclaredType) type).getTypeArguments().isEmpty();
+    }
+
+    /** Returns the simple name of the injector, which includes the names of enclosing classes. */
+    private static String injectorName(TypeElement cls) {
+        final StringBuilder b = new StringBuilder(cls.getSimpleName());
+        for (Element e = cls.getEnclosingElement(); e.getKind() != ElementKind.PACKAGE; e = e.getEnclosingElement())
+            b.insert(0, e.getSimpleName() + "_");
+        return b.append(INJECTOR_SUFFIX).toString();
+    }
+
+    private static String quote(String s) {
+        return "\"" + s.replace("\\", "\\\\").replace("\"", "\\\"") + "\"";
+    }
+
+    private boolean isValid(VariableElement fld) {
+        final Set<Modifier> modifiers = fld.getModifiers();
+        if (modifiers.contains(Modifier.PRIVATE) || modifiers.contains(Modifier.STATIC)) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, "Injected fields must not be private or static", fld);
+            return false;
+        }
+        if (fld.asType().getKind().isPrimitive()) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, "Injected fields must be of a reference type, found " + fld.asType(), fld);
+            return false;
+        }
+        final boolean isAny = findAnnotation(fld, ANY) != null;
+        if (isAny && findAnnotation(fld, OPTIONAL) != null) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, "Cannot use @Any and @Optional on the same field", fld);
+            return false;
+        }
+        if (isAny && (!isOfType(fld.asType(), LIST) || firstTypeArgument(fld.asType()) == null)) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, "field must be of type List when using @Any, found " + fld.asType(), fld);
+            return false;
+        }
+        if (isOfType(fld.asType(), PROVIDER) && firstTypeArgument(fld.asType()) == null) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, "Provider fields require a type argument", fld);
+            return false;
+        }
+        return true;
+    }
+
+    private void writeInjector(TypeElement cls, List<VariableElement> fields) {
+        if (cls.getModifiers().contains(Modifier.PRIVATE)) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, "Classes with injected fields must not be private", cls);
+            return;
+        }
+        final PackageElement pkg = processingEnv.getElementUtils().getPackageOf(cls);
+        final String packageName = pkg.isUnnamed() ? null : pkg.getQualifiedName().toString();
+        final String injector = injectorName(cls);
+        final String className = cls.getQualifiedName().toString();
+
+        final Map<String, String> keys = new LinkedHashMap<String, String>();      // key initializer => key name
+        final List<String> declarations = new ArrayList<String>();
+        final List<String> assignments = new ArrayList<String>(fields.size());
+        for (VariableElement fld : fields) {
+            if (!isValid(fld))
+                return;
+            final String qualifier = findAnnotation(fld, NAMED) == null ? null : getValue(findAnnotation(fld, NAMED));
+            final String qualifierText = qualifier == null ? "" : ", " + quote(qualifier);
+            final TypeMirror type = fld.asType();
+            final String target = "instance." + fld.getSimpleName();
+            if (findAnnotation(fld, ANY) != null) {
+                final String erasure = processingEnv.getTypeUtils().erasure(firstTypeArgument(type)).toString();
+                assignments.add(target + " = " + JDP + ".getAll(" + erasure + ".class" + qualifierText + ");");
+                continue;
+            }
+            final boolean isProvider = isOfType(type, PROVIDER);
+            final TypeMirror keyType = isProvider ? firstTypeArgument(type) : type;
+            final String erasure = processingEnv.getTypeUtils().erasure(keyType).toString();
+            final String initializer = JDP + ".key(" + erasure + ".class" + qualifierText + ")";
+            String keyName = keys.get(initializer);
+            if (keyName == null) {
+                keyName = "KEY_" + keys.size();
+                keys.put(initializer, keyName);
+                declarations.add("private static final " + JDP_KEY + "<" + erasure + "> " + keyName + " = " + initializer + ";");
+            }
+            if (isProvider)
+                assignments.add(target + " = " + (isGeneric(keyType) ? "(" + PROVIDER + ") " : "") + keyName + ".checked();");
+            else
+                assignments.add(target + " = " + keyName + (findAnnotation(fld, OPTIONAL) != null ? ".getOptional();" : ".get();"));
+        }
+
+        try {
+            final JavaFileObject file = processingEnv.getFiler().createSourceFile(
+                (packageName == null ? "" : packageName + ".") + injector, cls);
+            final Writer w = file.openWriter();
+            try {
+                if (packageName != null)
+                    w.write("package " + packageName + ";\n\n");
+                w.write("/** Injects the fields of " + className + ", generated by " + getClass().getCanonicalName() + ". */\n");
+                w.write("public final class " + injector + " {\n");
+                for (String d : declarations)
+                    w.write("    " + d + "\n");
+                w.write("\n    private " + injector + "() {\n    }\n\n");
+                w.write("    @SuppressWarnings(\"unchecked\")\n");
+                w.write("    public static void inject(" + className + " instance) {\n");
+                for (String a : assignments)
+                    w.write("        " + a + "\n");
+                w.write("    }\n}\n");
+            } finally {
+                w.close();
+            }
+        } catch (IOException e) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, "Cannot write " + injector + ": " + e.getMessage(), cls);
+        }
+    }
+}
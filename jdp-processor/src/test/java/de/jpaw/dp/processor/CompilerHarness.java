@@ -0,0 +1,116 @@
+package de.jpaw.dp.processor;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.net.MalformedURLException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+import javax.annotation.processing.Processor;
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.StandardLocation;
+import javax.tools.ToolProvider;
+
+import org.eclipse.xtend.lib.macro.Active;
+import org.reflections.Reflections;
+import org.slf4j.Logger;
+
+import de.jpaw.dp.Jdp;
+
+/** Compiles Java sources in memory with the processors under test, writing the classes and resources into a temporary directory. */
+final class CompilerHarness {
+    final boolean success;
+    final File outputDir;
+    final List<Diagnostic<? extends JavaFileObject>> diagnostics;
+
+    private CompilerHarness(boolean success, File outputDir, List<Diagnostic<? extends JavaFileObject>> diagnostics) {
+        this.success = success;
+        this.outputDir = outputDir;
+        this.diagnostics = diagnostics;
+    }
+
+    private static final class Source extends SimpleJavaFileObject {
+        private final String code;
+
+        private Source(String classname, String code) {
+            super(URI.create("string:///" + classname.replace('.', '/') + Kind.SOURCE.extension), Kind.SOURCE);
+            this.code = code;
+        }
+
+        @Override
+        public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+            return code;
+        }
+    }
+
+    private static String locationOf(Class<?> cls) {
+        try {
+            return new File(cls.getProtectionDomain().getCodeSource().getLocation().toURI()).getPath();
+        } catch (URISyntaxException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /** Compiles the sources, given as pairs of class name and code, into a new directory. Without processors, annotation processing is disabled. */
+    static CompilerHarness compile(List<Processor> processors, String ... namesAndSources) throws IOException {
+        return compile(Files.createTempDirectory("jdp-processor-test").toFile(), processors, namesAndSources);
+    }
+
+    /** Compiles the sources, given as pairs of class name and code, into an existing directory, which is also on the class path. */
+    static CompilerHarness compile(File outputDir, List<Processor> processors, String ... namesAndSources) throws IOException {
+        final List<JavaFileObject> sources = new ArrayList<JavaFileObject>();
+        for (int i = 0; i < namesAndSources.length; i += 2)
+            sources.add(new Source(namesAndSources[i], namesAndSources[i + 1]));
+        final JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        final DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<JavaFileObject>();
+        final StandardJavaFileManager fileManager = compiler.getStandardFileManager(diagnostics, Locale.ROOT, StandardCharsets.UTF_8);
+        try {
+            fileManager.setLocation(StandardLocation.CLASS_OUTPUT, Arrays.asList(outputDir));
+            fileManager.setLocation(StandardLocation.CLASS_PATH, Arrays.asList(outputDir,
+              new File(locationOf(Jdp.class)), new File(locationOf(Reflections.class)), new File(locationOf(Logger.class)),
+              new File(locationOf(Active.class))));    // de.jpaw.dp.Inject is an xtend active annotation
+            final List<String> options = processors.isEmpty() ? Arrays.asList("-proc:none") : new ArrayList<String>();
+            final JavaCompiler.CompilationTask task = compiler.getTask(new StringWriter(), fileManager, diagnostics, options, null, sources);
+            if (!processors.isEmpty())
+                task.setProcessors(processors);
+            final boolean success = task.call();
+            return new CompilerHarness(success, outputDir, diagnostics.getDiagnostics());
+        } finally {
+            fileManager.close();
+        }
+    }
+
+    /** Returns the text of a generated resource or source file, relative to the output directory. */
+    String read(String path) throws IOException {
+        return new String(Files.readAllBytes(new File(outputDir, path).toPath()), StandardCharsets.UTF_8);
+    }
+
+    /** Returns all messages of the given kind. */
+    List<String> messages(Diagnostic.Kind kind) {
+        final List<String> result = new ArrayList<String>();
+        for (Diagnostic<? extends JavaFileObject> d : diagnostics) {
+            if (d.getKind() == kind)
+                result.add(d.getMessage(Locale.ROOT));
+        }
+        return result;
+    }
+
+    /** Returns a class loader for the compiled classes, delegating to the test's class loader. */
+    ClassLoader classLoader() throws MalformedURLException {
+        return new URLClassLoader(new URL [] { outputDir.toURI().toURL() }, CompilerHarness.class.getClassLoader());
+    }
+}
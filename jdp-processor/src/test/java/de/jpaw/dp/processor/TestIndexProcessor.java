@@ -0,0 +1,132 @@
+package de.jpaw.dp.processor;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertTrue;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import javax.annotation.processing.Processor;
+
+import org.testng.annotations.Test;
+
+import de.jpaw.dp.Jdp;
+
+@Test(singleThreaded = true)
+public class TestIndexProcessor {
+    private static final String [] SOURCES = {
+        "Svc",  "public interface Svc {}",
+        "Impl", "@de.jpaw.dp.Singleton public class Impl implements Svc {}",
+        "Blue", "@de.jpaw.dp.Singleton @de.jpaw.dp.Named(\"blue\") public class Blue implements Svc {}",
+        "Sub",  "public class Sub extends Impl {}",
+        "Dep",  "@de.jpaw.dp.Dependent public class Dep { public static class Inner extends Dep {} }",
+        "Pt",   "@de.jpaw.dp.PerThread public class Pt {}",
+        "Log",  "public class Log { public static final java.util.List<String> STAGES = new java.util.ArrayList<String>(); }",
+        "Boot", "@de.jpaw.dp.Startup(20) public class Boot { public static void onStartup() { Log.STAGES.add(\"Boot\"); } }",
+        "Init", "@de.jpaw.dp.Startup(10) public class Init { public static void onStartup() { Log.STAGES.add(\"Init\"); } }",
+    };
+
+    private static List<Processor> indexProcessor() {
+        return Collections.<Processor>singletonList(new JdpIndexProcessor());
+    }
+
+    /** Returns the sources in the given package, with sources of the sub package "util" appended. */
+    private static String [] sources(String pkg, String ... moreNamesAndSources) {
+        final List<String> result = new ArrayList<String>();
+        for (int i = 0; i < SOURCES.length; i += 2) {
+            result.add(pkg + "." + SOURCES[i]);
+            result.add("package " + pkg + ";\n" + SOURCES[i + 1]);
+        }
+        result.add(pkg + ".util.Helper");
+        result.add("package " + pkg + ".util;\npublic class Helper {}");
+        result.addAll(Arrays.asList(moreNamesAndSources));
+        return result.toArray(new String [result.size()]);
+    }
+
+    public void testIndexContents() throws Exception {
+        final CompilerHarness c = CompilerHarness.compile(indexProcessor(), sources("idx"));
+        assertTrue(c.success, c.diagnostics.toString());
+        final List<String> lines = Arrays.asList(c.read(JdpIndexProcessor.INDEX_RESOURCE).split("\n"));
+        assertTrue(lines.get(0).startsWith("#"));
+        assertEquals(lines.subList(1, lines.size()), Arrays.asList(
+            "LAZY_SINGLETON idx.Blue",
+            "DEPENDENT idx.Dep",
+            "DEPENDENT idx.Dep$Inner",
+            "LAZY_SINGLETON idx.Impl",
+            "PER_THREAD idx.Pt",
+            "LAZY_SINGLETON idx.Sub",
+            "STARTUP 20 idx.Boot",
+            "STARTUP 10 idx.Init",
+            "PACKAGE idx 9",
+            "PACKAGE idx.util 1"));
+    }
+
+    /** Initializes Jdp for the package of the compiled classes, and returns the registrations and the order of the startup stages. */
+    private static String describe(CompilerHarness c, String pkg, boolean useIndex) throws Exception {
+        final ClassLoader loader = c.classLoader();
+        final ClassLoader previousLoader = Thread.currentThread().getContextClassLoader();
+        final boolean previousUseIndex = Jdp.useIndex;
+        Thread.currentThread().setContextClassLoader(loader);
+        Jdp.useIndex = useIndex;
+        try {
+            Jdp.reset();
+            Jdp.init(pkg);
+            final StringBuilder b = new StringBuilder();
+            for (String name : Arrays.asList("Svc", "Impl", "Sub", "Dep", "Dep$Inner", "Pt")) {
+                final Class<Object> type = (Class<Object>) loader.loadClass(pkg + "." + name);
+                for (String qualifier : Arrays.asList(null, "blue")) {
+                    final List<String> classes = new ArrayList<String>();
+                    final List<Class<? extends Object>> found = Jdp.getAllClasses(type, qualifier);
+                    if (found != null) {
+                        for (Class<?> cls : found)
+                            classes.add(cls.getName() + ":" + Jdp.getScopeForClassname(type, cls.getCanonicalName(), qualifier));
+                    }
+                    Collections.sort(classes);
+                    b.append(name).append('/').append(qualifier).append(" -> ").append(classes).append('\n');
+                }
+            }
+            b.append("startup: ").append(loader.loadClass(pkg + ".Log").getField("STAGES").get(null));
+            return b.toString();
+        } finally {
+            Jdp.reset();
+            Jdp.useIndex = previousUseIndex;
+            Thread.currentThread().setContextClassLoader(previousLoader);
+        }
+    }
+
+    public void testIndexIsEquivalentToScan() throws Exception {
+        final CompilerHarness c = CompilerHarness.compile(indexProcessor(), sources("eqv"));
+        assertTrue(c.success, c.diagnostics.toString());
+        final String indexed = describe(c, "eqv", true);
+        final String scanned = describe(c, "eqv", false);
+        assertEquals(indexed, scanned);
+        assertTrue(indexed.contains("Svc/null -> [eqv.Impl:LAZY_SINGLETON, eqv.Sub:LAZY_SINGLETON]"), indexed);
+        assertTrue(indexed.endsWith("startup: [Init, Boot]"), indexed);
+    }
+
+    /** Classes compiled without the processor (for example by an incremental build) must not be skipped. */
+    public void testPartialIndexIsScanned() throws Exception {
+        final CompilerHarness c = CompilerHarness.compile(indexProcessor(), sources("part"));
+        assertTrue(c.success, c.diagnostics.toString());
+        final File dir = c.outputDir;
+        final CompilerHarness later = CompilerHarness.compile(dir, Collections.<Processor>emptyList(),
+            "part.Late", "package part;\n@de.jpaw.dp.Singleton public class Late implements Svc {}");
+        assertTrue(later.success, later.diagnostics.toString());
+
+        final ClassLoader loader = c.classLoader();
+        final ClassLoader previousLoader = Thread.currentThread().getContextClassLoader();
+        Thread.currentThread().setContextClassLoader(loader);
+        try {
+            Jdp.reset();
+            Jdp.init("part");
+            assertNotNull(Jdp.getOptional(loader.loadClass("part.Late")));
+        } finally {
+            Jdp.reset();
+            Thread.currentThread().setContextClassLoader(previousLoader);
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package de.jpaw.dp.processor;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+
+import java.lang.reflect.Field;
+import java.util.Collections;
+import java.util.List;
+
+import javax.annotation.processing.Processor;
+import javax.tools.Diagnostic;
+
+import org.testng.annotations.Test;
+
+import de.jpaw.dp.Jdp;
+import de.jpaw.dp.Provider;
+
+@Test(singleThreaded = true)
+public class TestInjectProcessor {
+    private static final String CLIENT =
+        "package inj;\n"
+      + "import de.jpaw.dp.*;\n"
+      + "import java.util.List;\n"
+      + "@Dependent public class Client {\n"
+      + "    @Inject Svc svc;\n"
+      + "    @Inject Svc sameSvc;\n"
+      + "    @Inject @Named(\"50%\") Svc percent;\n"
+      + "    @Inject @Optional Unknown unknown;\n"
+      + "    @Inject Provider<Svc> provider;\n"
+      + "    @Inject @Any List<Svc> all;\n"
+      + "    public Client() {\n"
+      + "        Client_JdpInjector.inject(this);\n"
+      + "    }\n"
+      + "}\n";
+
+    private static List<Processor> injectProcessor() {
+        return Collections.<Processor>singletonList(new JdpInjectProcessor());
+    }
+
+    private static Object field(Object instance, String name) throws Exception {
+        final Field f = instance.getClass().getDeclaredField(name);
+        f.setAccessible(true);      // injected fields are package private
+        return f.get(instance);
+    }
+
+    public void testFieldsAreInjected() throws Exception {
+        final CompilerHarness c = CompilerHarness.compile(injectProcessor(),
+            "inj.Svc",     "package inj;\npublic interface Svc {}",
+            "inj.Unknown", "package inj;\npublic interface Unknown {}",
+            "inj.Impl",    "package inj;\n@de.jpaw.dp.Singleton public class Impl implements Svc {}",
+            "inj.Percent", "package inj;\n@de.jpaw.dp.Singleton @de.jpaw.dp.Named(\"50%\") public class Percent implements Svc {}",
+            "inj.Client",  CLIENT);
+        assertTrue(c.success, c.diagnostics.toString());
+
+        // one key per type and qualifier: Svc, Svc "50%", Unknown
+        final String injector = c.read("inj/Client_JdpInjector.java");
+        assertTrue(injector.contains("KEY_2 = de.jpaw.dp.Jdp.key(inj.Unknown.class)"), injector);
+        assertFalse(injector.contains("KEY_3"), injector);
+
+        final ClassLoader loader = c.classLoader();
+        final ClassLoader previousLoader = Thread.currentThread().getContextClassLoader();
+        Thread.currentThread().setContextClassLoader(loader);
+        try {
+            Jdp.reset();
+            Jdp.init("inj");
+            final Object client = Jdp.getRequired(loader.loadClass("inj.Client"));
+            final Object svc = field(client, "svc");
+            assertEquals(svc.getClass().getName(), "inj.Impl");
+            assertSame(field(client, "sameSvc"), svc);
+            assertEquals(field(client, "percent").getClass().getName(), "inj.Percent");
+            assertNull(field(client, "unknown"));
+            assertSame(((Provider<?>) field(client, "provider")).get(), svc);
+            assertTrue(((List<?>) field(client, "all")).contains(svc));
+        } finally {
+            Jdp.reset();
+            Thread.currentThread().setContextClassLoader(previousLoader);
+        }
+    }
+
+    public void testProviderFieldsFailAtConstruction() throws Exception {
+        final CompilerHarness c = CompilerHarness.compile(injectProcessor(),
+            "unbound.Unknown", "package unbound;\npublic interface Unknown {}",
+            "unbound.Client",  "package unbound;\n@de.jpaw.dp.Dependent public class Client {\n"
+              + "    @de.jpaw.dp.Inject de.jpaw.dp.Provider<Unknown> provider;\n"
+              + "    public Client() { Client_JdpInjector.inject(this); }\n}\n");
+        assertTrue(c.success, c.diagnostics.toString());
+
+        final ClassLoader loader = c.classLoader();
+        final ClassLoader previousLoader = Thread.currentThread().getContextClassLoader();
+        Thread.currentThread().setContextClassLoader(loader);
+        try {
+            Jdp.reset();
+            Jdp.init("unbound");
+            assertNull(Jdp.getOptional(loader.loadClass("unbound.Client")));   // same as Jdp.getProvider(), not deferred to the first get()
+        } finally {
+            Jdp.reset();
+            Thread.currentThread().setContextClassLoader(previousLoader);
+        }
+    }
+
+    public void testInvalidFieldsAreReported() throws Exception {
+        final CompilerHarness c = CompilerHarness.compile(injectProcessor(),
+            "bad.Svc",        "package bad;\npublic interface Svc {}",
+            "bad.Private",    "package bad;\npublic class Private { @de.jpaw.dp.Inject private Svc svc; }",
+            "bad.Static",     "package bad;\npublic class Static { @de.jpaw.dp.Inject static Svc svc; }",
+            "bad.Primitive",  "package bad;\npublic class Primitive { @de.jpaw.dp.Inject int count; }",
+            "bad.AnyNoList",  "package bad;\npublic class AnyNoList { @de.jpaw.dp.Inject @de.jpaw.dp.Any Svc svc; }",
+            "bad.AnyOptional", "package bad;\npublic class AnyOptional { @de.jpaw.dp.Inject @de.jpaw.dp.Any @de.jpaw.dp.Optional java.util.List<Svc> svcs; }",
+            "bad.RawProvider", "package bad;\npublic class RawProvider { @de.jpaw.dp.Inject de.jpaw.dp.Provider provider; }");
+        assertFalse(c.success);
+        final String errors = c.messages(Diagnostic.Kind.ERROR).toString();
+        assertTrue(errors.contains("Injected fields must not be private or static"), errors);
+        assertTrue(errors.contains("Injected fields must be of a reference type, found int"), errors);
+        assertTrue(errors.contains("field must be of type List when using @Any"), errors);
+        assertTrue(errors.contains("Cannot use @Any and @Optional on the same field"), errors);
+        assertTrue(errors.contains("Provider fields require a type argument"), errors);
+        assertEquals(c.messages(Diagnostic.Kind.ERROR).size(), 6, errors);
+    }
+
+    public void testFinalFieldsAreReported() throws Exception {
+        final CompilerHarness c = CompilerHarness.compile(injectProcessor(),
+            "fin.Svc",    "package fin;\npublic interface Svc {}",
+            "fin.Holder", "package fin;\npublic class Holder { @de.jpaw.dp.Inject final Svc svc = null; }");
+        assertTrue(c.success, c.diagnostics.toString());
+        final String warnings = c.messages(Diagnostic.Kind.WARNING).toString();
+        assertTrue(warnings.contains("Final field is not injected"), warnings);
+    }
+}
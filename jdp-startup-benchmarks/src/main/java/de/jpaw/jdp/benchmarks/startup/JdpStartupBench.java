@@ -0,0 +1,104 @@
+package de.jpaw.jdp.benchmarks.startup;
+
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import de.jpaw.dp.Jdp;
+import de.jpaw.dp.ReflectionsPackageCache;
+
+// Jdp.reset() + Jdp.init() of a synthetic code base, see SyntheticClasspath. Allocations are reported by the gc profiler:
+//java -jar target/jdp-startup-benchmarks.jar -prof gc
+// Generating the code base of 100000 classes takes several minutes upon the first run, it is kept for subsequent runs.
+
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+@Fork(value = 1, jvmArgsAppend = { "-Xmx4g" })
+public class JdpStartupBench {
+
+    /** Common parameters and class loader handling. */
+    public abstract static class SyntheticState {
+        @Param({ "1000", "10000", "100000" })
+        public int classes;
+
+        @Param({ "true", "false" })
+        public boolean useIndex;     // false scans the classpath
+
+        protected URL [] classpath;
+        private ClassLoader previousLoader;
+
+        protected void prepare() throws IOException {
+            classpath = SyntheticClasspath.get(classes);
+            previousLoader = Thread.currentThread().getContextClassLoader();
+            Jdp.useIndex = useIndex;
+        }
+
+        /** Makes a new class loader the context class loader, therefore none of the synthetic classes has been loaded. */
+        protected void newLoader() {
+            Thread.currentThread().setContextClassLoader(new URLClassLoader(classpath, JdpStartupBench.class.getClassLoader()));
+            ReflectionsPackageCache.clear();
+            Jdp.reset();
+        }
+
+        @TearDown(Level.Trial)
+        public void restore() {
+            Thread.currentThread().setContextClassLoader(previousLoader);
+            ReflectionsPackageCache.clear();
+            Jdp.reset();
+            Jdp.useIndex = true;
+        }
+    }
+
+    /** Every iteration starts with a new class loader: includes reading the index or scanning, and loading all classes. */
+    @State(Scope.Thread)
+    public static class Cold extends SyntheticState {
+        @Setup(Level.Trial)
+        public void setupTrial() throws IOException {
+            prepare();
+        }
+
+        @Setup(Level.Iteration)
+        public void setupIteration() {
+            newLoader();
+        }
+    }
+
+    /** All iterations use the same class loader, which has been initialized once: classes are loaded and scan results cached. */
+    @State(Scope.Thread)
+    public static class Warm extends SyntheticState {
+        @Setup(Level.Trial)
+        public void setupTrial() throws IOException {
+            prepare();
+            newLoader();
+            Jdp.init(SyntheticClasspath.PREFIX);
+        }
+    }
+
+    @Benchmark
+    public void coldInit(Cold state) {
+        Jdp.init(SyntheticClasspath.PREFIX);
+    }
+
+    @Benchmark
+    public void warmInit(Warm state) {
+        Jdp.reset();
+        Jdp.init(SyntheticClasspath.PREFIX);
+    }
+}
@@ -0,0 +1,136 @@
+package de.jpaw.jdp.benchmarks.startup;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import javax.tools.JavaCompiler;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+
+/** Generates and compiles a synthetic code base of Jdp beans, organized in families of 10 annotated classes.
+ *
+ * Every family has a chain of 4 interfaces, whose root is the interface Component shared by all families,
+ * and a chain of 3 abstract base classes. Its annotated classes cover the scopes, qualifiers, @Alternative, @Default, @Fallback,
+ * @Specializes and @Startup. 100 families form a package. Every chunk of families is compiled separately, with the jdp-processor,
+ * therefore the classes can be registered via the build time index as well as via classpath scanning.
+ *
+ * The compiled classes are kept in a directory per class count below the system property jdp.synthetic.dir
+ * (default: java.io.tmpdir/jdp-synthetic), and reused by subsequent runs. Delete it after changing the generator.
+ */
+public final class SyntheticClasspath {
+    public static final String PREFIX = "de.jpaw.jdp.synthetic";
+    public static final int FAMILY_SIZE = 10;           // annotated classes per family
+    private static final int FAMILIES_PER_PACKAGE = 100;
+    private static final int FAMILIES_PER_CHUNK = 100;  // families per compiler run
+    private static final String INDEX_PROCESSOR = "de.jpaw.dp.processor.JdpIndexProcessor";
+    private static final String COMPLETE = "complete";  // marker file, written after all chunks have been compiled
+
+    private SyntheticClasspath() {
+    }
+
+    /** Returns the class path of a code base of the given number of annotated classes (rounded up to full families), generating it if required. */
+    public static URL [] get(int classes) throws IOException {
+        final int families = (classes + FAMILY_SIZE - 1) / FAMILY_SIZE;
+        final File root = new File(System.getProperty("jdp.synthetic.dir", new File(System.getProperty("java.io.tmpdir"), "jdp-synthetic").getPath()),
+          Integer.toString(families * FAMILY_SIZE));
+        final int chunks = (families + FAMILIES_PER_CHUNK - 1) / FAMILIES_PER_CHUNK;
+        if (!new File(root, COMPLETE).exists())
+            generate(root, families, chunks);
+        final URL [] classpath = new URL [chunks + 1];
+        classpath[0] = toURL(new File(root, "common"));
+        for (int i = 0; i < chunks; ++i)
+            classpath[i + 1] = toURL(new File(root, "chunk" + i));
+        return classpath;
+    }
+
+    private static URL toURL(File dir) throws MalformedURLException {
+        return dir.toURI().toURL();
+    }
+
+    private static void generate(File root, int families, int chunks) throws IOException {
+        final File sources = new File(root, "src");
+        final File common = new File(root, "common");
+        final String commonSource = "package " + PREFIX + ";\n\npublic interface Component {\n}\n";
+        compile(Arrays.asList(write(sources, PREFIX, "Component", commonSource)), common, null);
+        for (int chunk = 0; chunk < chunks; ++chunk) {
+            final List<File> files = new ArrayList<File>(FAMILIES_PER_CHUNK * (FAMILY_SIZE + 7));
+            final int end = Math.min(families, (chunk + 1) * FAMILIES_PER_CHUNK);
+            for (int family = chunk * FAMILIES_PER_CHUNK; family < end; ++family)
+                writeFamily(sources, family, files);
+            compile(files, new File(root, "chunk" + chunk), common);
+        }
+        Files.write(new File(root, COMPLETE).toPath(), new byte [0]);
+    }
+
+    private static File write(File sources, String packageName, String simpleName, String source) throws IOException {
+        final File dir = new File(sources, packageName.replace('.', File.separatorChar));
+        dir.mkdirs();
+        final File file = new File(dir, simpleName + ".java");
+        final Writer w = Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8);
+        try {
+            w.write(source);
+        } finally {
+            w.close();
+        }
+        return file;
+    }
+
+    private static void writeFamily(File sources, int family, List<File> files) throws IOException {
+        final String pkg = PREFIX + ".p" + (family / FAMILIES_PER_PACKAGE);
+        final String f = "F" + family;
+        final String header = "package " + pkg + ";\n\nimport de.jpaw.dp.*;\n\n";
+        files.add(write(sources, pkg, f + "Api3", header + "public interface " + f + "Api3 extends " + PREFIX + ".Component {\n}\n"));
+        files.add(write(sources, pkg, f + "Api2", header + "public interface " + f + "Api2 extends " + f + "Api3 {\n}\n"));
+        files.add(write(sources, pkg, f + "Api1", header + "public interface " + f + "Api1 extends " + f + "Api2 {\n}\n"));
+        files.add(write(sources, pkg, f + "Api", header + "public interface " + f + "Api extends " + f + "Api1 {\n    int compute(int arg);\n}\n"));
+        files.add(write(sources, pkg, f + "Base2", header + "public abstract class " + f + "Base2 implements " + f + "Api {\n"
+          + "    @Override\n    public int compute(int arg) {\n        return arg + " + family + ";\n    }\n}\n"));
+        files.add(write(sources, pkg, f + "Base1", header + "public abstract class " + f + "Base1 extends " + f + "Base2 {\n}\n"));
+        files.add(write(sources, pkg, f + "Base", header + "public abstract class " + f + "Base extends " + f + "Base1 {\n}\n"));
+        bean(sources, pkg, header, files, "@Singleton", f + "Main", "extends " + f + "Base");
+        bean(sources, pkg, header, files, "@Singleton\n@Named(\"fast\")", f + "Fast", "extends " + f + "Base");
+        bean(sources, pkg, header, files, "@Dependent\n@Named(\"slow\")", f + "Slow", "extends " + f + "Base");
+        bean(sources, pkg, header, files, "@Singleton\n@Alternative", f + "Alternative", "extends " + f + "Base");
+        bean(sources, pkg, header, files, "@Singleton\n@Specializes", f + "Special", "extends " + f + "Main");
+        bean(sources, pkg, header, files, "@PerThread\n@Named(\"local\")", f + "Local", "extends " + f + "Base");
+        bean(sources, pkg, header, files, "@Singleton\n@Fallback", f + "Fallback", "extends " + f + "Base");
+        bean(sources, pkg, header, files, "@Dependent\n@Named(\"q" + (family % 10) + "\")", f + "Shared", "implements " + f + "Api1");
+        bean(sources, pkg, header, files, "@Singleton\n@Default", f + "Preferred", "implements " + f + "Api2");
+        files.add(write(sources, pkg, f + "Startup", header + "@Startup(" + (100000 + family) + ")\npublic class " + f + "Startup {\n"
+          + "    public static void onStartup() {\n    }\n}\n"));
+    }
+
+    private static void bean(File sources, String pkg, String header, List<File> files, String annotations, String name, String inheritance) throws IOException {
+        files.add(write(sources, pkg, name, header + annotations + "\npublic class " + name + " " + inheritance + " {\n}\n"));
+    }
+
+    private static void compile(List<File> files, File output, File common) throws IOException {
+        final JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        if (compiler == null)
+            throw new IllegalStateException("No system Java compiler found, the benchmark must run on a JDK");
+        output.mkdirs();
+        final String classpath = common == null
+          ? System.getProperty("java.class.path")
+          : common.getPath() + File.pathSeparator + System.getProperty("java.class.path");
+        final List<String> options = new ArrayList<String>(Arrays.asList("-d", output.getPath(), "-classpath", classpath, "-nowarn"));
+        if (common != null)
+            options.addAll(Arrays.asList("-processor", INDEX_PROCESSOR));
+        else
+            options.add("-proc:none");
+        final StandardJavaFileManager fileManager = compiler.getStandardFileManager(null, null, StandardCharsets.UTF_8);
+        try {
+            if (!compiler.getTask(null, fileManager, null, options, null, fileManager.getJavaFileObjectsFromFiles(files)).call())
+                throw new IllegalStateException("Compiling the synthetic classes into " + output + " failed");
+        } finally {
+            fileManager.close();
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package de.jpaw.dp
+
+import java.nio.file.Files
+import java.time.Duration
+import jdk.jfr.Recording
+import jdk.jfr.consumer.RecordingFile
+import org.testng.annotations.Test
+
+import static org.testng.Assert.*
+
+@Test(singleThreaded=true)
+class TestFlightRecorderEvents {
+
+    def void testEventsAreRecorded() {
+        val file = Files.createTempFile("jdp", ".jfr")
+        val recording = new Recording
+        try {
+            recording.enable("de.jpaw.dp.Instantiation").withThreshold(Duration.ZERO)
+            recording.enable("de.jpaw.dp.Scan")
+            recording.start
+            assertTrue(JdpFlightRecorder.INSTANCE.isInstantiationEnabled)
+            new JdpEntry<PublicBean>(PublicBean, Scopes.DEPENDENT).get
+            Jdp.reset
+            Jdp.init("de.jpaw.dp.tests.reset")
+            recording.stop
+            recording.dump(file)
+
+            val events = RecordingFile.readAllEvents(file)
+            assertTrue(events.exists[
+                eventType.name == "de.jpaw.dp.Instantiation" && getClass("type").name == PublicBean.name && getString("scope") == "DEPENDENT"
+            ], events.toString)
+            assertTrue(events.exists[
+                eventType.name == "de.jpaw.dp.Scan" && getString("packagePrefix") == "de.jpaw.dp.tests.reset" && getInt("classes") == 2
+            ], events.toString)
+        } finally {
+            recording.close
+            Files.delete(file)
+            Jdp.reset
+        }
+        assertFalse(JdpFlightRecorder.INSTANCE.isInstantiationEnabled)
+    }
+}
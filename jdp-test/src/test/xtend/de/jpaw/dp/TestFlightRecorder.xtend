@@ -0,0 +1,25 @@
+package de.jpaw.dp
+
+import org.testng.annotations.Test
+
+import static org.testng.Assert.*
+
+// the events themselves are tested by TestFlightRecorderEvents in src/test/jfr, which is compiled on Java 11 and later only
+@Test
+class TestFlightRecorder {
+
+    def void testImplementationDependsOnJavaVersion() {
+        val java11 = !System.getProperty("java.specification.version").startsWith("1.")
+        assertEquals(JdpFlightRecorder.AVAILABLE, java11)
+        assertEquals(JdpFlightRecorder.INSTANCE.class.name, if (java11) "de.jpaw.dp.jfr.JdpEventRecorder" else "de.jpaw.dp.JdpFlightRecorder")
+    }
+
+    def void testFacadeRecordsNothing() {
+        val recorder = new JdpFlightRecorder
+        assertFalse(recorder.isInstantiationEnabled)
+        assertNull(recorder.beginInstantiation)
+        assertNull(recorder.beginScan)
+        assertNull(recorder.beginStartup)
+        assertNull(recorder.beginShutdown)
+    }
+}
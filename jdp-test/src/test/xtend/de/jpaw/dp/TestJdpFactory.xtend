@@ -0,0 +1,85 @@
+package de.jpaw.dp
+
+import de.jpaw.dp.exceptions.InstantiationFailedException
+import java.io.IOException
+import org.testng.annotations.Test
+
+import static org.testng.Assert.*
+
+class PublicBean {
+}
+
+package class PackagePrivateBean {
+}
+
+class PackagePrivateConstructorBean {
+    package new() {
+    }
+}
+
+class CheckedFailureBean {
+    new() throws IOException {
+        throw new IOException("disk full")
+    }
+}
+
+class UncheckedFailureBean {
+    new() {
+        throw new IllegalStateException("not configured")
+    }
+}
+
+@Test(singleThreaded=true)
+class TestJdpFactory {
+    static final String METHOD_HANDLE_PROVIDER = "de.jpaw.dp.JdpFactory$MethodHandleProvider"
+
+    def void testFrequentPublicClassUsesSpunProvider() {
+        val provider = JdpFactory.forClass(PublicBean, true)
+        assertNotEquals(provider.class.name, METHOD_HANDLE_PROVIDER)
+        val first = provider.get
+        val second = provider.get
+        assertTrue(first instanceof PublicBean)
+        assertNotSame(first, second)
+    }
+
+    def void testRareClassUsesMethodHandle() {
+        assertEquals(JdpFactory.forClass(PublicBean, false).class.name, METHOD_HANDLE_PROVIDER)
+    }
+
+    def void testInaccessibleClassesFallBackToMethodHandle() {
+        for (cls : #[ PackagePrivateBean, PackagePrivateConstructorBean ]) {
+            val provider = JdpFactory.forClass(cls, true)
+            assertEquals(provider.class.name, METHOD_HANDLE_PROVIDER)
+            assertNotSame(provider.get, provider.get)
+            assertTrue(cls.isInstance(provider.get))
+        }
+    }
+
+    def void testCheckedExceptionIsWrapped() {
+        for (frequent : #[ true, false ]) {
+            try {
+                JdpFactory.forClass(CheckedFailureBean, frequent).get
+                fail("exception expected")
+            } catch (InstantiationFailedException e) {
+                assertTrue(e.cause instanceof IOException)
+                assertEquals(e.cause.message, "disk full")
+            }
+        }
+    }
+
+    def void testRuntimeExceptionIsNotWrapped() {
+        for (frequent : #[ true, false ]) {
+            try {
+                JdpFactory.forClass(UncheckedFailureBean, frequent).get
+                fail("exception expected")
+            } catch (IllegalStateException e) {
+                assertEquals(e.message, "not configured")
+            }
+        }
+    }
+
+    @Test(expectedExceptions=InstantiationFailedException)
+    def void testMissingNoArgsConstructorIsReported() {
+        JdpFactory.forClass(Integer, false)
+    }
+}
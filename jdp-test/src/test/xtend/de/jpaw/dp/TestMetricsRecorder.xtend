@@ -0,0 +1,85 @@
+package de.jpaw.dp
+
+import org.testng.annotations.BeforeMethod
+import org.testng.annotations.Test
+
+import static org.testng.Assert.*
+
+@Fallback
+@Dependent
+class FallbackFormatter {
+}
+
+@Fallback
+@Any
+@Dependent
+class GlobalFallbackFormatter {
+}
+
+@Test(singleThreaded=true)
+class TestMetricsRecorder {
+
+    @BeforeMethod
+    def void setup() {
+        JdpMetricsRecorder.reset
+    }
+
+    def void testLookupsAreCountedByOutcome() {
+        JdpMetricsRecorder.lookup(CharSequence, null, new JdpEntry<Object>("found"))
+        JdpMetricsRecorder.lookup(CharSequence, "iso", new JdpEntry<GlobalFallbackFormatter>(GlobalFallbackFormatter, Scopes.DEPENDENT))
+        JdpMetricsRecorder.lookup(CharSequence, null, null)
+        val m = JdpMetricsRecorder.snapshot.get(CharSequence)
+        assertEquals(m.lookups, 3L)
+        assertEquals(m.fallbackHits, 1L)
+        assertEquals(m.failures, 1L)
+        assertEquals(m.instantiations, 0L)
+        assertNull(JdpMetricsRecorder.snapshot.get(Integer))
+    }
+
+    def void testOnlyGlobalFallbackHitsAreCounted() {
+        // the @Fallback implementation is a regular result of an unqualified lookup
+        JdpMetricsRecorder.lookup(CharSequence, null, new JdpEntry<FallbackFormatter>(FallbackFormatter, Scopes.DEPENDENT))
+        JdpMetricsRecorder.lookup(CharSequence, null, new JdpEntry<GlobalFallbackFormatter>(GlobalFallbackFormatter, Scopes.DEPENDENT))
+        // a qualified lookup served by an implementation for the qualifier
+        JdpMetricsRecorder.lookup(CharSequence, "iso", new JdpEntry<Object>("found", "iso"))
+        assertEquals(JdpMetricsRecorder.snapshot.get(CharSequence).fallbackHits, 0L)
+        // a qualified lookup which fell through to the global fallback
+        JdpMetricsRecorder.lookup(CharSequence, "iso", new JdpEntry<GlobalFallbackFormatter>(GlobalFallbackFormatter, Scopes.DEPENDENT))
+        assertEquals(JdpMetricsRecorder.snapshot.get(CharSequence).fallbackHits, 1L)
+    }
+
+    def void testInstantiationsAreSummedPerTypeAndScope() {
+        JdpMetricsRecorder.instantiated(Integer, Scopes.DEPENDENT, 100L)
+        JdpMetricsRecorder.instantiated(Integer, Scopes.DEPENDENT, 50L)
+        JdpMetricsRecorder.instantiated(Long, Scopes.LAZY_SINGLETON, 10L)
+        JdpMetricsRecorder.scopeGet(Long)
+        val snapshot = JdpMetricsRecorder.snapshot
+        assertEquals(snapshot.get(Integer).instantiations, 2L)
+        assertEquals(snapshot.get(Integer).constructionNanos, 150L)
+        assertEquals(snapshot.get(Long).scopeGets, 1L)
+        assertEquals(snapshot.instantiationsByScope.get("DEPENDENT"), 2L)
+        assertEquals(snapshot.instantiationsByScope.get("LAZY_SINGLETON"), 1L)
+        assertEquals(snapshot.instantiationsByScope.get("PER_THREAD"), 0L)
+    }
+
+    def void testTopInstantiated() {
+        JdpMetricsRecorder.lookup(CharSequence, null, null)       // used, but never instantiated
+        JdpMetricsRecorder.instantiated(Long, Scopes.DEPENDENT, 1L)
+        for (i : 1 .. 3)
+            JdpMetricsRecorder.instantiated(Integer, Scopes.DEPENDENT, 1L)
+        val snapshot = JdpMetricsRecorder.snapshot
+        assertEquals(snapshot.topInstantiated(1).map[typeName], #[ "java.lang.Integer" ])
+        assertEquals(snapshot.topInstantiated(10).map[typeName], #[ "java.lang.Integer", "java.lang.Long" ])
+        assertTrue(snapshot.topInstantiated(0).empty)
+    }
+
+    def void testBeanDelegatesToRecorder() {
+        val bean = new JdpMetricsBean
+        JdpMetricsRecorder.instantiated(Integer, Scopes.DEPENDENT, 1L)
+        assertEquals(bean.topInstantiated(5).map[typeName], #[ "java.lang.Integer" ])
+        assertEquals(bean.types.size, 1)
+        bean.reset
+        assertTrue(bean.types.empty)
+        assertEquals(bean.instantiationsByScope.get("DEPENDENT"), 0L)
+    }
+}
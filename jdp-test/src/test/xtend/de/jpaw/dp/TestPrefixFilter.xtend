@@ -0,0 +1,51 @@
+package de.jpaw.dp
+
+import java.util.ArrayList
+import java.util.List
+import java.util.Map
+import java.util.concurrent.ConcurrentMap
+import org.testng.annotations.Test
+
+import static org.testng.Assert.*
+
+@Test
+class TestPrefixFilter {
+
+    def void testIncludesRestrictTypesOnly() {
+        val filter = new JdpPrefixFilter(#[ "java.lang.", "java.util.concurrent.", "java.util.Li" ], #[])
+        assertTrue(filter.acceptsAsType(String))
+        assertTrue(filter.acceptsAsType(ConcurrentMap))
+        assertTrue(filter.acceptsAsType(List))
+        assertFalse(filter.acceptsAsType(ArrayList))
+        assertFalse(filter.isExcluded(ArrayList))
+        assertTrue(filter.mayAccept("java.util"))
+        assertTrue(filter.mayAccept("javax"))
+    }
+
+    def void testExcludesApplyToAllClasses() {
+        val filter = new JdpPrefixFilter(#[], #[ "java.util.concurrent." ])
+        assertTrue(filter.isExcluded(ConcurrentMap))
+        assertFalse(filter.acceptsAsType(ConcurrentMap))
+        assertFalse(filter.isExcluded(List))
+        assertTrue(filter.acceptsAsType(List))
+        assertTrue(filter.isExcluded("java.util.concurrent.ConcurrentHashMap"))
+        assertFalse(filter.mayAccept("java.util.concurrent.atomic"))
+        assertTrue(filter.mayAccept("java.util"))
+    }
+
+    def void testNestedClassesAreMatchedByCanonicalName() {
+        val filter = new JdpPrefixFilter(#[ "java.util.Map." ], #[ "java.util.Map.Entry" ])
+        assertTrue(filter.isExcluded(Map.Entry))
+        assertTrue(filter.isExcluded("java.util.Map$Entry"))
+        assertFalse(filter.isExcluded(Map))
+        assertFalse(filter.acceptsAsType(Map))      // "java.util.Map" does not start with "java.util.Map."
+    }
+
+    def void testEmptyFilterAcceptsAll() {
+        val filter = new JdpPrefixFilter(#[], #[])
+        assertTrue(filter.acceptsAsType(Object))
+        assertFalse(filter.isExcluded(Object))
+        assertFalse(filter.isExcluded("java.lang.Object"))
+        assertTrue(filter.mayAccept("java"))
+    }
+}
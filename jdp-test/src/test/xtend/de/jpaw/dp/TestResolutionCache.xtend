@@ -0,0 +1,52 @@
+package de.jpaw.dp
+
+import java.lang.ref.WeakReference
+import org.testng.annotations.Test
+
+import static org.testng.Assert.*
+
+@Test(singleThreaded=true)
+class TestResolutionCache {
+
+    /** Puts a provider into the cache, and returns a weak reference to it. */
+    def private WeakReference<Provider<?>> cacheProvider(JdpResolutionCache cache) {
+        val Provider<?> provider = new JdpEntry<Object>(new Object)
+        cache.put(Object, "q", cache.epoch, provider)
+        assertSame(cache.get(Object, "q", cache.epoch), provider)
+        return new WeakReference<Provider<?>>(provider)
+    }
+
+    def private void assertCollected(WeakReference<?> ref) {
+        for (var i = 0; i < 50 && ref.get !== null; i++) {
+            System.gc
+            Thread.sleep(10)
+        }
+        assertNull(ref.get)
+    }
+
+    def void testOutdatedProvidersAreReplaced() {
+        val cache = new JdpResolutionCache
+        val ref = cacheProvider(cache)
+        val epoch = cache.epoch
+        cache.invalidate
+        assertNotEquals(cache.epoch, epoch)
+        assertNull(cache.get(Object, "q", cache.epoch))
+
+        // the next resolution of the type replaces the outdated results
+        cache.put(Object, null, cache.epoch, null)
+        assertNull(cache.get(Object, "q", cache.epoch))
+        assertCollected(ref)
+    }
+
+    def void testClearReleasesProviders() {
+        val cache = new JdpResolutionCache
+        val ref = cacheProvider(cache)
+        cache.clear
+        assertNull(cache.get(Object, "q", cache.epoch))
+        assertCollected(ref)
+
+        // the cache remains usable after clear()
+        cache.put(Object, null, cache.epoch, null)
+        assertSame(cache.get(Object, null, cache.epoch), JdpResolutionCache.NO_PROVIDER)
+    }
+}
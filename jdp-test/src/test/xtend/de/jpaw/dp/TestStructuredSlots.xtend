@@ -0,0 +1,25 @@
+package de.jpaw.dp
+
+import de.jpaw.dp.tests.structured.Tenant
+import org.testng.annotations.Test
+
+import static org.testng.Assert.*
+
+@Test(singleThreaded=true)
+class TestStructuredSlots {
+
+    def void testSlotIsStableAcrossResets() {
+        Jdp.reset
+        Jdp.init("de.jpaw.dp.tests.structured")
+        val slot = Jdp.getStructuredScope(Tenant).slot
+        Jdp.reset
+        Jdp.init("de.jpaw.dp.tests.structured")
+        assertEquals(Jdp.getStructuredScope(Tenant).slot, slot)
+        Jdp.reset
+    }
+
+    def void testExplicitScopesHaveTheirOwnSlots() {
+        assertNotEquals(new StructuredScope<String>().slot, new StructuredScope<String>().slot)
+        assertNotEquals(new StructuredScope<String>().slot, new StructuredScope<Tenant>(Tenant).slot)
+    }
+}
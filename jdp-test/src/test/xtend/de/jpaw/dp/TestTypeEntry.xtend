@@ -0,0 +1,39 @@
+package de.jpaw.dp
+
+import org.testng.annotations.Test
+
+import static org.testng.Assert.*
+
+// entries are appended to shared backing arrays, views obtained before must not change
+@Test
+class TestTypeEntry {
+
+    def void testViewsAreNotAffectedByLaterEntries() {
+        val te = new JdpTypeEntry<Object>(new JdpEntry<Object>("first"))
+        val before = te.getEntries(null)
+        for (i : 1 ..< 100000)
+            te.addEntry(new JdpEntry<Object>(Integer.valueOf(i)))
+        assertEquals(before.size, 1)
+        assertEquals(before.get(0).get, "first")
+        val after = te.getEntries(null)
+        assertEquals(after.size, 100000)
+        assertEquals(after.get(99999).get, 99999)
+    }
+
+    def void testReplaceQualifiedEntries() {
+        val te = new JdpTypeEntry<Object>(new JdpEntry<Object>("plain"))
+        te.addEntry(new JdpEntry<Object>("blue1", "blue"))
+        te.addEntry(new JdpEntry<Object>("blue2", "blue"))
+        val blue = te.getEntries("blue")
+        te.replaceEntries("blue", new JdpEntry<Object>("blue3", "blue"))
+        assertEquals(te.getEntries("blue").size, 1)
+        assertEquals(te.getEntries("blue").get(0).get, "blue3")
+        assertEquals(blue.size, 2)
+        assertEquals(blue.get(1).get, "blue2")
+
+        te.replaceEntries(null, new JdpEntry<Object>("only"))
+        assertEquals(te.getEntries(null).size, 1)
+        assertNull(te.getEntries("blue"))
+        assertTrue(te.qualifiers.empty)
+    }
+}
@@ -0,0 +1,41 @@
+package de.jpaw.dp
+
+import org.testng.annotations.Test
+
+import static org.testng.Assert.*
+
+@Test
+class TestTypeIndex {
+
+    def private void populate(JdpTypeIndex index, JdpEntry<Object> entry) {
+        synchronized (index) {
+            index.putTypeEntry(Object, new JdpTypeEntry<Object>(entry))
+        }
+        index.putAutodetected(Object, entry)
+        index.putSpecializedBy(Object, entry)
+    }
+
+    def void testClearRemovesAllInformation() {
+        val index = new JdpTypeIndex
+        val entry = new JdpEntry<Object>("first")
+        populate(index, entry)
+        assertEquals(index.types, #[ Object ])
+        index.clear
+        assertNull(index.getTypeEntry(Object))
+        assertNull(index.getAutodetected(Object))
+        assertNull(index.getSpecializedBy(Object))
+        assertTrue(index.types.empty)
+    }
+
+    def void testClassCanBeRegisteredAgain() {
+        val index = new JdpTypeIndex
+        populate(index, new JdpEntry<Object>("first"))
+        index.clear
+        val second = new JdpEntry<Object>("second")
+        populate(index, second)
+        assertEquals(index.getTypeEntry(Object).getInstanceForClassname("java.lang.String", null), "second")
+        assertSame(index.getAutodetected(Object), second)
+        assertSame(index.getSpecializedBy(Object), second)
+        assertEquals(index.types, #[ Object ])
+    }
+}
@@ -0,0 +1,99 @@
+package de.jpaw.dp.tests.cached
+
+import de.jpaw.dp.Alternative
+import de.jpaw.dp.Dependent
+import de.jpaw.dp.Inject
+import de.jpaw.dp.Jdp
+import de.jpaw.dp.JdpKey
+import de.jpaw.dp.Named
+import de.jpaw.dp.Optional
+import de.jpaw.dp.Provider
+import de.jpaw.dp.Singleton
+import org.testng.annotations.BeforeMethod
+import org.testng.annotations.Test
+
+import static org.testng.Assert.*
+
+interface Formatter {}
+interface Unknown {}
+
+@Singleton
+class DefaultFormatter implements Formatter {}
+
+@Alternative
+@Singleton
+class OtherFormatter implements Formatter {}
+
+@Named("iso")
+@Singleton
+class IsoFormatter implements Formatter {}
+
+@Named("a-b")
+@Singleton
+class DashFormatter implements Formatter {}
+
+@Named("a.b")
+@Singleton
+class DotFormatter implements Formatter {}
+
+@Dependent
+class Request {
+    @Inject(cached = true) public Formatter formatter
+    @Inject(cached = true) public Formatter sameFormatter          // shares the static key of formatter
+    @Inject(cached = true) @Named("iso") public Formatter isoFormatter
+    @Inject(cached = true) @Optional public Unknown unknown
+    @Inject(cached = true) public Provider<Formatter> formatterProvider
+    @Inject(cached = true) @Named("a-b") public Formatter dashFormatter    // both qualifiers differ in characters which are not valid in identifiers
+    @Inject(cached = true) @Named("a.b") public Formatter dotFormatter
+    @Inject(cached = true) @Named("a-b") public Formatter sameDashFormatter
+}
+
+@Dependent
+class UnboundRequest {
+    @Inject(cached = true) public Provider<Unknown> unknownProvider
+}
+
+@Test(singleThreaded=true)
+class TestCachedInject {
+
+    @BeforeMethod
+    def void setup() {
+        Jdp.reset
+        Jdp.init("de.jpaw.dp.tests.cached")
+    }
+
+    def void testCachedFieldsAreInjected() {
+        val request = Jdp.getRequired(Request)
+        assertEquals(request.formatter.class, DefaultFormatter)
+        assertSame(request.sameFormatter, request.formatter)
+        assertEquals(request.isoFormatter.class, IsoFormatter)
+        assertNull(request.unknown)
+        assertSame(request.formatterProvider.get, request.formatter)
+    }
+
+    def void testCollidingQualifiersGetSeparateKeys() {
+        val request = Jdp.getRequired(Request)
+        assertEquals(request.dashFormatter.class, DashFormatter)
+        assertEquals(request.dotFormatter.class, DotFormatter)
+        assertSame(request.sameDashFormatter, request.dashFormatter)
+        val keys = typeof(Request).declaredFields.filter[type == JdpKey].map[name].toSet
+        assertEquals(keys, #{
+            "JDP_KEY_de_jpaw_dp_tests_cached_Formatter",
+            "JDP_KEY_de_jpaw_dp_tests_cached_Formatter$$iso",
+            "JDP_KEY_de_jpaw_dp_tests_cached_Formatter$$a$002Db",
+            "JDP_KEY_de_jpaw_dp_tests_cached_Formatter$$a_b",
+            "JDP_KEY_de_jpaw_dp_tests_cached_Unknown"
+        })
+    }
+
+    def void testCachedProviderFailsAtConstruction() {
+        // same as Jdp.getProvider(): the instance cannot be constructed without a provider of Unknown
+        assertNull(Jdp.getOptional(UnboundRequest))
+    }
+
+    def void testCachedFieldsFollowRebinding() {
+        assertEquals(Jdp.getRequired(Request).formatter.class, DefaultFormatter)
+        Jdp.bindClassWithoutQualifier(OtherFormatter, Formatter)
+        assertEquals(Jdp.getRequired(Request).formatter.class, OtherFormatter)
+    }
+}
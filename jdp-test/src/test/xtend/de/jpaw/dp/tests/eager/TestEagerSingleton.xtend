@@ -0,0 +1,73 @@
+package de.jpaw.dp.tests.eager
+
+import de.jpaw.dp.Jdp
+import de.jpaw.dp.Singleton
+import java.util.concurrent.atomic.AtomicInteger
+import org.testng.annotations.AfterMethod
+import org.testng.annotations.Test
+
+import static org.testng.Assert.*
+
+class Counters {
+    public static final AtomicInteger database = new AtomicInteger
+    public static final AtomicInteger repository = new AtomicInteger
+    public static final AtomicInteger report = new AtomicInteger
+}
+
+@Singleton(eager = true)
+class Database {
+    new() {
+        Counters.database.incrementAndGet
+        Thread.sleep(50)
+    }
+}
+
+@Singleton(eager = true)
+class Repository {
+    public final Database db = Jdp.getRequired(Database)
+
+    new() {
+        Counters.repository.incrementAndGet
+    }
+}
+
+@Singleton
+class Report {
+    new() {
+        Counters.report.incrementAndGet
+    }
+}
+
+@Test(singleThreaded=true)
+class TestEagerSingleton {
+
+    @AfterMethod
+    def void cleanup() {
+        Jdp.eagerThreads = 1
+        Jdp.eagerSingletons = false
+    }
+
+    def private void init() {
+        Counters.database.set(0)
+        Counters.repository.set(0)
+        Counters.report.set(0)
+        Jdp.reset
+        Jdp.init("de.jpaw.dp.tests.eager")
+    }
+
+    def void testEagerSingletonsAreConstructedByInit() {
+        Jdp.eagerThreads = 4
+        init
+        assertEquals(Counters.database.get, 1)
+        assertEquals(Counters.repository.get, 1)
+        assertEquals(Counters.report.get, 0)
+        assertSame(Jdp.getRequired(Repository).db, Jdp.getRequired(Database))
+        assertEquals(Counters.database.get, 1)
+    }
+
+    def void testGlobalFlagMakesAllSingletonsEager() {
+        Jdp.eagerSingletons = true
+        init
+        assertEquals(Counters.report.get, 1)
+    }
+}
@@ -0,0 +1,67 @@
+package de.jpaw.dp.tests.eagerfail
+
+import de.jpaw.dp.Jdp
+import de.jpaw.dp.Singleton
+import de.jpaw.dp.exceptions.EagerSingletonInstantiationException
+import java.util.concurrent.atomic.AtomicInteger
+import org.testng.annotations.AfterMethod
+import org.testng.annotations.Test
+
+import static org.testng.Assert.*
+
+@Singleton(eager = true)
+class BrokenConnection {
+    new() {
+        throw new IllegalStateException("no connection")
+    }
+}
+
+@Singleton(eager = true)
+class BrokenConfiguration {
+    new() {
+        throw new IllegalArgumentException("no configuration")
+    }
+}
+
+@Singleton(eager = true)
+class WorkingCache {
+    public static final AtomicInteger constructed = new AtomicInteger
+
+    new() {
+        constructed.incrementAndGet
+    }
+}
+
+@Test(singleThreaded=true)
+class TestEagerSingletonFailure {
+
+    @AfterMethod
+    def void cleanup() {
+        Jdp.eagerThreads = 1
+        Jdp.reset
+    }
+
+    def private void assertInitFails() {
+        WorkingCache.constructed.set(0)
+        Jdp.reset
+        try {
+            Jdp.init("de.jpaw.dp.tests.eagerfail")
+            fail("init should report the failed eager singletons")
+        } catch (EagerSingletonInstantiationException e) {
+            // all eager singletons have been attempted, the first failure is the cause, the other one is suppressed
+            assertEquals(e.suppressed.size, 1)
+            val causes = #[ e.cause.class, (e.suppressed.get(0) as EagerSingletonInstantiationException).cause.class ].toSet
+            assertEquals(causes, #{ IllegalStateException, IllegalArgumentException })
+            assertEquals(WorkingCache.constructed.get, 1)
+        }
+    }
+
+    def void testFailuresAreThrownByInit() {
+        assertInitFails
+    }
+
+    def void testFailuresAreThrownByInitWithThreads() {
+        Jdp.eagerThreads = 3
+        assertInitFails
+    }
+}
@@ -0,0 +1,87 @@
+package de.jpaw.dp.tests.lazy
+
+import de.jpaw.dp.Jdp
+import de.jpaw.dp.PerThread
+import de.jpaw.dp.Singleton
+import de.jpaw.dp.exceptions.CyclicDependencyException
+import java.util.ArrayList
+import java.util.concurrent.Callable
+import java.util.concurrent.Executors
+import java.util.concurrent.atomic.AtomicInteger
+import org.testng.annotations.BeforeMethod
+import org.testng.annotations.Test
+
+import static org.testng.Assert.*
+
+@Singleton
+class ExpensiveSingleton {
+    private static final AtomicInteger instanceCounter = new AtomicInteger();
+
+    new() {
+        instanceCounter.incrementAndGet
+        Thread.sleep(100)       // simulate an expensive construction, such as a connection pool
+    }
+
+    def static void resetCounter() {
+        instanceCounter.set(0)
+    }
+
+    def static int getCounter() {
+        return instanceCounter.get
+    }
+}
+
+@Singleton
+class Chicken {
+    val Egg egg = Jdp.getRequired(Egg)
+}
+
+@Singleton
+class Egg {
+    val Chicken chicken = Jdp.getRequired(Chicken)
+}
+
+// a cycle which passes a PerThread bean
+@Singleton
+class Hen {
+    val Nest nest = Jdp.getRequired(Nest)
+}
+
+@PerThread
+class Nest {
+    val Hen hen = Jdp.getRequired(Hen)
+}
+
+@Test(singleThreaded=true)
+class TestLazySingleton {
+
+    @BeforeMethod
+    def void setup() {
+        Jdp.reset
+        ExpensiveSingleton.resetCounter
+        Jdp.init("de.jpaw.dp.tests.lazy")
+    }
+
+    def void testConcurrentFirstAccess() {
+        val executor = Executors.newFixedThreadPool(16)
+        val tasks = new ArrayList<Callable<ExpensiveSingleton>>
+        for (var int i = 0; i < 16; i += 1)
+            tasks.add([ Jdp.getRequired(ExpensiveSingleton) ])
+        val results = executor.invokeAll(tasks)
+        executor.shutdown
+        val first = results.get(0).get
+        for (r : results)
+            assertSame(r.get, first)
+        assertEquals(ExpensiveSingleton.counter, 1)
+    }
+
+    @Test(expectedExceptions=CyclicDependencyException)
+    def void testCycle() {
+        Jdp.getRequired(Chicken)
+    }
+
+    @Test(expectedExceptions=CyclicDependencyException)
+    def void testCycleViaPerThread() {
+        Jdp.getRequired(Hen)
+    }
+}
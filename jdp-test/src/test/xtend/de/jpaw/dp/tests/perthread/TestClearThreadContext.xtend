@@ -0,0 +1,82 @@
+package de.jpaw.dp.tests.perthread
+
+import de.jpaw.dp.Jdp
+import de.jpaw.dp.JdpThreadLocal
+import de.jpaw.dp.PerThread
+import java.lang.ref.WeakReference
+import org.testng.annotations.BeforeMethod
+import org.testng.annotations.Test
+
+import static org.testng.Assert.*
+
+@PerThread
+class Buffer implements AutoCloseable {
+    private boolean closed = false
+
+    override close() {
+        closed = true
+    }
+
+    def boolean isClosed() {
+        return closed
+    }
+}
+
+@Test(singleThreaded=true)
+class TestClearThreadContext {
+
+    @BeforeMethod
+    def void setup() {
+        Jdp.reset
+        Jdp.init("de.jpaw.dp.tests.perthread")
+    }
+
+    def void testPerThreadInstanceIsClosed() {
+        val buffer = Jdp.getRequired(Buffer)
+        assertSame(Jdp.getRequired(Buffer), buffer)
+        Jdp.clearThreadContext
+        assertTrue(buffer.isClosed)
+        val newBuffer = Jdp.getRequired(Buffer)
+        assertNotSame(newBuffer, buffer)
+        assertFalse(newBuffer.isClosed)
+        Jdp.clearThreadContext
+    }
+
+    def void testThreadLocalIsCleared() {
+        val tenant = new JdpThreadLocal<String>(null, false, true)
+        tenant.set("ACME")
+        assertEquals(tenant.get, "ACME")
+        Jdp.clearThreadContext
+        assertNull(tenant.get)
+        tenant.set("OTHER")     // no overwrite error, the previous value has been removed
+        assertEquals(tenant.get, "OTHER")
+        tenant.close
+    }
+
+    def void testThreadLocalReusedAfterCloseIsCleared() {
+        val tenant = new JdpThreadLocal<String>(null, false, true)
+        for (name : #[ "A", "B", "C" ]) {
+            tenant.set(name)    // request scoped usage: the registration is kept across close()
+            tenant.close
+        }
+        tenant.set("D")
+        Jdp.clearThreadContext
+        assertNull(tenant.get)
+        tenant.set("E")         // registers again after the thread context has been cleared
+        Jdp.clearThreadContext
+        assertNull(tenant.get)
+    }
+
+    def void testUnusedScopeIsNotRetained() {
+        var tenant = new JdpThreadLocal<String>(null, false, true)
+        tenant.set("ACME")
+        val ref = new WeakReference<JdpThreadLocal<String>>(tenant)
+        tenant = null
+        for (var i = 0; i < 50 && ref.get !== null; i++) {
+            System.gc
+            Thread.sleep(10)
+        }
+        assertNull(ref.get)
+        Jdp.clearThreadContext
+    }
+}
@@ -0,0 +1,49 @@
+package de.jpaw.dp.tests.perthread
+
+import de.jpaw.dp.Jdp
+import de.jpaw.dp.JdpContext
+import de.jpaw.dp.JdpThreadLocal
+import java.util.concurrent.Executors
+import org.testng.annotations.BeforeMethod
+import org.testng.annotations.Test
+
+import static org.testng.Assert.*
+
+@Test(singleThreaded=true)
+class TestContextPropagation {
+
+    @BeforeMethod
+    def void setup() {
+        Jdp.reset
+        Jdp.init("de.jpaw.dp.tests.perthread")
+    }
+
+    def void testValuesArePropagatedToTask() {
+        val tenant = new JdpThreadLocal<String>(null, false, true)
+        val executor = JdpContext.propagating(Executors.newSingleThreadExecutor)
+        try {
+            val buffer = Jdp.getRequired(Buffer)
+            tenant.set("ACME")
+            assertEquals(executor.submit[ tenant.get ].get, "ACME")
+            // PerThread instances are not shared by default
+            assertNotSame(executor.submit[ Jdp.getRequired(Buffer) ].get, buffer)
+            Jdp.clearThreadContext
+            // the worker thread does not keep the propagated values
+            assertNull(executor.submit[ tenant.get ].get)
+        } finally {
+            executor.shutdown
+        }
+    }
+
+    def void testPerThreadInstancesArePropagatedOnRequest() {
+        val executor = JdpContext.propagating(Executors.newSingleThreadExecutor, true)
+        try {
+            val buffer = Jdp.getRequired(Buffer)
+            assertEquals(JdpContext.capture(true).size, JdpContext.capture.size + 1)
+            assertSame(executor.submit[ Jdp.getRequired(Buffer) ].get, buffer)
+            Jdp.clearThreadContext
+        } finally {
+            executor.shutdown
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package de.jpaw.dp.tests.perthread
+
+import de.jpaw.dp.JdpThreadLocal
+import de.jpaw.dp.Provider
+import java.util.concurrent.atomic.AtomicInteger
+import org.testng.annotations.Test
+
+import static org.testng.Assert.*
+
+/** Accesses the values the way subclasses did before the values moved into a ThreadLocal. */
+class LegacyThreadLocal extends JdpThreadLocal<String> {
+    new() {
+        super(null, true, true)
+    }
+
+    def String legacyGet() {
+        return instances.get(threadId)
+    }
+
+    def void legacyPut(String value) {
+        instances.put(threadId, value)
+    }
+
+    def String otherThreadsValue() {
+        return instances.get(threadId + 1)
+    }
+}
+
+@Test(singleThreaded=true)
+class TestJdpThreadLocal {
+
+    def void testSetGetClose() {
+        val tenant = new JdpThreadLocal<String>(null, false, true)
+        assertNull(tenant.get)
+        tenant.set("ACME")
+        assertEquals(tenant.get, "ACME")
+        try {
+            tenant.set("OTHER")
+            fail("overwrite not detected")
+        } catch (RuntimeException e) {
+        }
+        tenant.close
+        assertNull(tenant.get)
+        tenant.close            // multiple close ops are allowed
+    }
+
+    def void testSetNullRemovesTheValue() {
+        val tenant = new JdpThreadLocal<String>(null, false, true)
+        tenant.set("ACME")
+        tenant.set(null)
+        assertNull(tenant.get)
+        tenant.set("OTHER")     // no overwrite error, the previous value has been removed
+        assertEquals(tenant.get, "OTHER")
+        tenant.close
+    }
+
+    def void testFactoryIsCalledOncePerThread() {
+        val counter = new AtomicInteger
+        val session = new JdpThreadLocal<Integer>(new Provider<Integer>() {
+            override get() {
+                return counter.incrementAndGet
+            }
+        }, false, false)
+        assertEquals(session.get, 1)
+        assertEquals(session.get, 1)
+        val other = new AtomicInteger
+        val t = new Thread [ other.set(session.get) ]
+        t.start
+        t.join
+        assertEquals(other.get, 2)
+        assertEquals(session.get, 1)
+        session.close
+    }
+
+    def void testDeprecatedMapByThreadId() {
+        val tenant = new LegacyThreadLocal
+        tenant.set("ACME")
+        assertEquals(tenant.legacyGet, "ACME")
+        assertNull(tenant.otherThreadsValue)
+        tenant.legacyPut("OTHER")
+        assertEquals(tenant.get, "OTHER")
+        tenant.close
+        assertNull(tenant.legacyGet)
+    }
+}
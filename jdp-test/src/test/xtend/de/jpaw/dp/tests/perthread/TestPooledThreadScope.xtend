@@ -0,0 +1,103 @@
+package de.jpaw.dp.tests.perthread
+
+import de.jpaw.dp.Jdp
+import de.jpaw.dp.PerThread
+import de.jpaw.dp.PooledThreadScope
+import de.jpaw.dp.Provider
+import de.jpaw.dp.VirtualThreadPolicy
+import java.util.concurrent.CyclicBarrier
+import java.util.concurrent.atomic.AtomicInteger
+import java.util.concurrent.atomic.AtomicReference
+import org.testng.annotations.Test
+
+import static org.testng.Assert.*
+
+@PerThread(virtualThreads = VirtualThreadPolicy.POOLED, poolSize = 2)
+class PooledParser {
+}
+
+/** Creates numbered instances. */
+class Numbers implements Provider<AtomicInteger> {
+    public final AtomicInteger created = new AtomicInteger
+
+    override get() {
+        return new AtomicInteger(created.incrementAndGet)
+    }
+}
+
+/** Pools the instances of all threads, which allows to test the pool with platform threads. */
+class PooledForAllThreads extends PooledThreadScope<AtomicInteger> {
+    new(Provider<AtomicInteger> delegate, int poolSize) {
+        super(delegate, poolSize)
+    }
+
+    override protected usesPool(Thread thread) {
+        return true
+    }
+}
+
+@Test(singleThreaded=true)
+class TestPooledThreadScope {
+
+    def void testPlatformThreadsAreNotPooled() {
+        val numbers = new Numbers
+        val scope = new PooledThreadScope<AtomicInteger>(numbers, 2)
+        val first = scope.get
+        assertSame(scope.get, first)
+        scope.close
+        assertEquals(scope.idleCount, 0)
+        assertNotSame(scope.get, first)
+        assertEquals(numbers.created.get, 2)
+        scope.close
+    }
+
+    def void testClosedInstanceIsReused() {
+        val numbers = new Numbers
+        val scope = new PooledForAllThreads(numbers, 2)
+        val first = scope.get
+        scope.close
+        assertEquals(scope.idleCount, 1)
+        assertSame(scope.get, first)
+        assertEquals(scope.idleCount, 0)
+        assertEquals(numbers.created.get, 1)
+        assertNull(scope.release)     // pooled instances must not be disposed by the caller
+        assertEquals(scope.idleCount, 1)
+    }
+
+    def void testPoolSizeIsLimited() {
+        val numbers = new Numbers
+        val scope = new PooledForAllThreads(numbers, 2)
+        val barrier = new CyclicBarrier(3)
+        val failure = new AtomicReference<Throwable>
+        val threads = (1..3).map [
+            new Thread [
+                try {
+                    scope.get
+                    barrier.await      // all three threads hold an instance at the same time
+                    scope.close
+                } catch (Throwable e) {
+                    failure.set(e)
+                }
+            ]
+        ].toList
+        threads.forEach [ start ]
+        threads.forEach [ join ]
+        assertNull(failure.get)
+        assertEquals(numbers.created.get, 3)
+        assertEquals(scope.idleCount, 2)
+    }
+
+    def void testPooledPolicyKeepsInstancesPerPlatformThread() {
+        Jdp.reset
+        Jdp.init("de.jpaw.dp.tests.perthread")
+        val mine = Jdp.getRequired(PooledParser)
+        assertSame(Jdp.getRequired(PooledParser), mine)
+        val other = new AtomicReference<PooledParser>
+        val t = new Thread [ other.set(Jdp.getRequired(PooledParser)) ]
+        t.start
+        t.join
+        assertNotNull(other.get)
+        assertNotSame(other.get, mine)
+        Jdp.clearThreadContext
+    }
+}
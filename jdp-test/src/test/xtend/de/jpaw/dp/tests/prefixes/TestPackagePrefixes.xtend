@@ -0,0 +1,47 @@
+package de.jpaw.dp.tests.prefixes
+
+import de.jpaw.dp.Jdp
+import de.jpaw.dp.tests.prefixes.api.Api
+import de.jpaw.dp.tests.prefixes.api.Base
+import de.jpaw.dp.tests.prefixes.impl.Implementation
+import org.testng.annotations.AfterMethod
+import org.testng.annotations.BeforeMethod
+import org.testng.annotations.Test
+
+import static org.testng.Assert.*
+
+@Test(singleThreaded=true)
+class TestPackagePrefixes {
+
+    @BeforeMethod
+    def void setup() {
+        Jdp.reset
+    }
+
+    @AfterMethod
+    def void cleanup() {
+        Jdp.reset
+    }
+
+    def void testIncludesDoNotSkipClassesOutsideOfThem() {
+        Jdp.includePackagePrefix("de.jpaw.dp.tests.prefixes.api.")
+        Jdp.init("de.jpaw.dp.tests.prefixes.impl")     // scanned although it is not included
+        // the implementations are registered for the included superclass and its interfaces
+        assertTrue(Jdp.getRequired(Api) instanceof Implementation)
+        assertTrue(Jdp.getRequired(Base) instanceof Implementation)
+        assertNotNull(Jdp.getOptional(Api, "legacy"))
+    }
+
+    def void testExcludedClassIsNotRegistered() {
+        Jdp.excludePackagePrefix("de.jpaw.dp.tests.prefixes.impl.Legacy")
+        Jdp.init("de.jpaw.dp.tests.prefixes")
+        assertTrue(Jdp.getRequired(Api) instanceof Implementation)
+        assertNull(Jdp.getOptional(Api, "legacy"))
+    }
+
+    def void testExcludedPackageIsNotScanned() {
+        Jdp.excludePackagePrefix("de.jpaw.dp.tests.prefixes.impl")
+        Jdp.init("de.jpaw.dp.tests.prefixes.impl")
+        assertNull(Jdp.getOptional(Api))
+    }
+}
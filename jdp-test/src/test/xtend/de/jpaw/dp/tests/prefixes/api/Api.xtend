@@ -0,0 +1,7 @@
+package de.jpaw.dp.tests.prefixes.api
+
+interface Api {
+}
+
+abstract class Base implements Api {
+}
@@ -0,0 +1,14 @@
+package de.jpaw.dp.tests.prefixes.impl
+
+import de.jpaw.dp.Named
+import de.jpaw.dp.Singleton
+import de.jpaw.dp.tests.prefixes.api.Base
+
+@Singleton
+class Implementation extends Base {
+}
+
+@Singleton
+@Named("legacy")
+class LegacyImplementation extends Base {
+}
@@ -0,0 +1,79 @@
+package de.jpaw.dp.tests.rebinding
+
+import de.jpaw.dp.Alternative
+import de.jpaw.dp.Jdp
+import de.jpaw.dp.Named
+import de.jpaw.dp.Singleton
+import org.testng.annotations.BeforeMethod
+import org.testng.annotations.Test
+
+import static org.testng.Assert.*
+
+interface Engine {}
+interface Unknown {}
+
+@Singleton
+class Petrol implements Engine {
+}
+
+@Alternative
+@Singleton
+class Electric implements Engine {
+}
+
+@Named("hybrid")
+@Singleton
+class Hybrid implements Engine {
+}
+
+// resolutions are cached, the cache must be invalidated by every change of the registry
+@Test(singleThreaded=true)
+class TestRebinding {
+
+    @BeforeMethod
+    def void setup() {
+        Jdp.reset
+        Jdp.init("de.jpaw.dp.tests.rebinding")
+    }
+
+    def void testRebindClass() {
+        assertEquals(Jdp.getRequired(Engine).class, Petrol)
+        assertEquals(Jdp.getRequired(Engine).class, Petrol)     // now served from the cache
+        Jdp.bindClassWithoutQualifier(Electric, Engine)
+        assertEquals(Jdp.getRequired(Engine).class, Electric)
+    }
+
+    def void testRebindInstance() {
+        val hybrid = Jdp.getRequired(Engine, "hybrid")
+        assertSame(Jdp.getRequired(Engine, "hybrid"), hybrid)
+        val otherHybrid = new Hybrid
+        Jdp.bindInstanceTo(otherHybrid, Engine, "hybrid")
+        assertSame(Jdp.getRequired(Engine, "hybrid"), otherHybrid)
+    }
+
+    def void testNegativeResultIsInvalidated() {
+        assertNull(Jdp.getOptional(Unknown))
+        assertNull(Jdp.getOptional(Unknown))                    // cached negative result
+        val unknown = new Unknown() {}
+        Jdp.bindInstanceTo(unknown, Unknown)
+        assertSame(Jdp.getOptional(Unknown), unknown)
+    }
+
+    def void testKeyFollowsRebinding() {
+        val key = Jdp.key(Engine)
+        val unknownKey = Jdp.key(Unknown)
+        assertEquals(key.get.class, Petrol)
+        assertNull(unknownKey.getOptional)
+        Jdp.bindClassWithoutQualifier(Electric, Engine)
+        assertEquals(key.get.class, Electric)
+        val unknown = new Unknown() {}
+        Jdp.bindInstanceTo(unknown, Unknown)
+        assertSame(unknownKey.get, unknown)
+    }
+
+    def void testReset() {
+        assertNotNull(Jdp.getOptional(Engine))
+        Jdp.reset
+        assertNull(Jdp.getOptional(Engine))
+    }
+}
@@ -0,0 +1,54 @@
+package de.jpaw.dp.tests.report
+
+import de.jpaw.dp.Dependent
+import de.jpaw.dp.Jdp
+import de.jpaw.dp.Singleton
+import org.testng.annotations.AfterMethod
+import org.testng.annotations.Test
+
+import static org.testng.Assert.*
+
+@Singleton
+class Frontend {
+    public final Backend backend = Jdp.getRequired(Backend)
+    public final Settings settings = Jdp.getRequired(Settings)
+}
+
+@Singleton
+class Backend {
+    public final Connection connection = Jdp.getRequired(Connection)
+}
+
+@Singleton
+class Settings {
+}
+
+@Dependent
+class Connection {
+    new() {
+        Thread.sleep(30)
+    }
+}
+
+@Test(singleThreaded=true)
+class TestConstructionTrace {
+
+    @AfterMethod
+    def void cleanup() {
+        Jdp.traceConstructions = false
+    }
+
+    def void testNestedConstructionsFormATree() {
+        Jdp.reset
+        Jdp.traceConstructions = true
+        Jdp.init("de.jpaw.dp.tests.report")
+        Jdp.getRequired(Frontend)
+        val trace = Jdp.constructionTrace
+        val root = trace.roots.findFirst[type == Frontend]
+        assertNotNull(root)
+        assertEquals(root.children.map[type].toList, #[Backend, Settings])
+        assertEquals(trace.criticalPath.map[type].toList, #[Frontend, Backend, Connection])
+        assertTrue(trace.criticalPathNanos >= 30_000_000L)
+        assertTrue(trace.toDot.contains('"' + Backend.name + '" -> "' + Connection.name + '"'))
+    }
+}
@@ -0,0 +1,65 @@
+package de.jpaw.dp.tests.report
+
+import de.jpaw.dp.Jdp
+import de.jpaw.dp.JdpStartupReport.Phase
+import de.jpaw.dp.Singleton
+import de.jpaw.dp.Startup
+import org.testng.annotations.Test
+
+import static org.testng.Assert.*
+
+@Singleton(eager = true)
+class Cache {
+}
+
+@Startup(10)
+class QuickStage {
+    def static void onStartup() {
+    }
+}
+
+@Startup(20)
+class SlowStage {
+    def static void onStartup() {
+        Thread.sleep(50)
+    }
+}
+
+@Test(singleThreaded=true)
+class TestStartupReport {
+
+    def void testStagesAreReportedSlowestFirst() {
+        Jdp.reset
+        Jdp.init("de.jpaw.dp.tests.report")
+        val stages = Jdp.startupReport.entries.filter[phase == Phase.STARTUP].toList
+        assertEquals(stages.size, 2)
+        assertTrue(stages.get(0).name.endsWith("SlowStage"))
+        assertTrue(stages.get(0).wallNanos >= 50_000_000L)
+        assertTrue(Jdp.startupReport.entries.exists[phase == Phase.EAGER_SINGLETONS])
+
+        Jdp.reset
+        assertTrue(Jdp.startupReport.entries.empty)
+    }
+
+    def void testReportCanBeLimited() {
+        Jdp.reset
+        Jdp.init("de.jpaw.dp.tests.report")
+        val report = Jdp.startupReport
+        val total = report.entries.size
+        val lines = report.toString(1).split("\n")
+        assertEquals(lines.size, 4)     // title, column headers, the slowest entry, the number of omitted ones
+        assertEquals(lines.get(2), report.entries.get(0).toString)
+        assertEquals(lines.get(3), "... " + (total - 1) + " more entries, see Jdp.startupReport()")
+        assertEquals(report.toString.split("\n").size, 2 + total)
+        assertEquals(report.toString(total), report.toString)
+        Jdp.reset
+    }
+
+    def void testSkippedPrefixesHaveNoScanPhase() {
+        Jdp.reset
+        Jdp.excludePackagePrefix("de.jpaw.dp.tests.report")
+        Jdp.scanClasses("de.jpaw.dp.tests.report", "de.jpaw.dp.tests.report.sub")     // both excluded, nothing is scanned
+        assertFalse(Jdp.startupReport.entries.exists[phase == Phase.SCAN])
+        Jdp.reset
+    }
+}
@@ -0,0 +1,61 @@
+package de.jpaw.dp.tests.reset
+
+import de.jpaw.dp.Jdp
+import de.jpaw.dp.Singleton
+import de.jpaw.dp.Specializes
+import de.jpaw.dp.exceptions.NoSuitableImplementationException
+import org.testng.annotations.Test
+
+import static org.testng.Assert.*
+
+interface Greeting {
+}
+
+@Singleton
+class Hello implements Greeting {
+}
+
+@Singleton
+@Specializes
+class LoudHello extends Hello {
+}
+
+@Test(singleThreaded=true)
+class TestResetRegistry {
+
+    def void testResetRemovesRegistrations() {
+        Jdp.reset
+        Jdp.init("de.jpaw.dp.tests.reset")
+        assertTrue(Jdp.getRequired(Greeting) instanceof LoudHello)
+        Jdp.reset
+        assertNull(Jdp.getOptional(Greeting))
+        assertNull(Jdp.getOptional(Hello))
+        try {
+            Jdp.bindClassWithoutQualifier(Hello, Greeting)     // requires the autodetected entry of Hello
+            fail("autodetected entry still present")
+        } catch (NoSuitableImplementationException e) {
+        }
+    }
+
+    def void testSameClassesCanBeRegisteredAgain() {
+        Jdp.reset
+        Jdp.init("de.jpaw.dp.tests.reset")
+        Jdp.reset
+        Jdp.init("de.jpaw.dp.tests.reset")
+        assertTrue(Jdp.getRequired(Greeting) instanceof LoudHello)
+        assertEquals(Jdp.getAllClasses(Greeting, null).toSet, #{ Hello, LoudHello })
+        Jdp.reset
+    }
+
+    def void testRebindingAfterResetResolvesToNewEntry() {
+        Jdp.reset
+        Jdp.init("de.jpaw.dp.tests.reset")
+        Jdp.getRequired(Greeting)       // cache the resolution
+        Jdp.reset
+        // Hello is not specialized any more, it is the only candidate
+        val hello = new Hello
+        Jdp.bindInstanceTo(hello, Greeting)
+        assertSame(Jdp.getRequired(Greeting), hello)
+        Jdp.reset
+    }
+}
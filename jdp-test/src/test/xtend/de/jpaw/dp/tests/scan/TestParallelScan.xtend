@@ -0,0 +1,55 @@
+package de.jpaw.dp.tests.scan
+
+import de.jpaw.dp.Jdp
+import de.jpaw.dp.ReflectionsPackageCache
+import de.jpaw.dp.tests.scan.alpha.AlphaGreeter
+import de.jpaw.dp.tests.scan.beta.BetaGreeter
+import org.testng.annotations.AfterMethod
+import org.testng.annotations.BeforeMethod
+import org.testng.annotations.Test
+
+import static org.testng.Assert.*
+
+interface Greeter {
+}
+
+@Test(singleThreaded=true)
+class TestParallelScan {
+    static final String ALPHA = "de.jpaw.dp.tests.scan.alpha"
+    static final String BETA  = "de.jpaw.dp.tests.scan.beta"
+
+    @BeforeMethod
+    def void setup() {
+        ReflectionsPackageCache.clear
+        Jdp.reset
+        Jdp.scanThreads = 4
+    }
+
+    @AfterMethod
+    def void cleanup() {
+        Jdp.scanThreads = 1
+        ReflectionsPackageCache.clear
+        Jdp.reset
+    }
+
+    def void testResultsAreInTheOrderOfThePrefixes() {
+        val result = ReflectionsPackageCache.getAllParallel(4, BETA, ALPHA, BETA)
+        assertEquals(result.length, 3)
+        assertSame(result.get(0), ReflectionsPackageCache.get(BETA))
+        assertSame(result.get(1), ReflectionsPackageCache.get(ALPHA))
+        assertSame(result.get(2), result.get(0))
+    }
+
+    def void testInitScansAllPrefixes() {
+        Jdp.init(ALPHA, BETA)
+        assertTrue(Jdp.getRequired(Greeter, "alpha") instanceof AlphaGreeter)
+        assertTrue(Jdp.getRequired(Greeter, "beta") instanceof BetaGreeter)
+        assertEquals(Jdp.getAll(Greeter).size, 0)       // both implementations are qualified
+    }
+
+    def void testInitWithPrescannedReflections() {
+        Jdp.init(ReflectionsPackageCache.getAllParallel(4, ALPHA, BETA))
+        assertTrue(Jdp.getRequired(Greeter, "alpha") instanceof AlphaGreeter)
+        assertTrue(Jdp.getRequired(Greeter, "beta") instanceof BetaGreeter)
+    }
+}
@@ -0,0 +1,10 @@
+package de.jpaw.dp.tests.scan.alpha
+
+import de.jpaw.dp.Named
+import de.jpaw.dp.Singleton
+import de.jpaw.dp.tests.scan.Greeter
+
+@Singleton
+@Named("alpha")
+class AlphaGreeter implements Greeter {
+}
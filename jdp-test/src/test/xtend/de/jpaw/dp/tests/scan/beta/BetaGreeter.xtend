@@ -0,0 +1,10 @@
+package de.jpaw.dp.tests.scan.beta
+
+import de.jpaw.dp.Dependent
+import de.jpaw.dp.Named
+import de.jpaw.dp.tests.scan.Greeter
+
+@Dependent
+@Named("beta")
+class BetaGreeter implements Greeter {
+}
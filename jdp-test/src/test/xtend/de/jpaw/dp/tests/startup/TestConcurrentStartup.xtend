@@ -0,0 +1,83 @@
+package de.jpaw.dp.tests.startup
+
+import de.jpaw.dp.Jdp
+import de.jpaw.dp.exceptions.CyclicStartupDependencyException
+import de.jpaw.dp.exceptions.StartupMethodExecutionException
+import java.util.ArrayList
+import java.util.Collections
+import java.util.List
+import org.testng.annotations.AfterMethod
+import org.testng.annotations.BeforeMethod
+import org.testng.annotations.Test
+
+import static org.testng.Assert.*
+
+/** Records the order in which the startup stages complete. */
+class StartupLog {
+    static final List<String> completed = Collections.synchronizedList(new ArrayList<String>)
+
+    def static void add(String stage) {
+        completed.add(stage)
+    }
+
+    def static List<String> get() {
+        return new ArrayList<String>(completed)
+    }
+
+    def static void clear() {
+        completed.clear
+    }
+}
+
+@Test(singleThreaded=true)
+class TestConcurrentStartup {
+
+    @BeforeMethod
+    def void setup() {
+        StartupLog.clear
+        Jdp.reset
+        Jdp.startupThreads = 4
+        Jdp.startupPriorityBand = 100      // all stages of these tests are in the same band
+    }
+
+    @AfterMethod
+    def void cleanup() {
+        Jdp.startupThreads = 1
+        Jdp.startupPriorityBand = 1
+        Jdp.reset
+    }
+
+    def void testDependsOnIsRespected() {
+        Jdp.init("de.jpaw.dp.tests.startup.graph")
+        // Metrics has no dependencies and does not wait for the slow Database stage, Repository does
+        assertEquals(StartupLog.get, #[ "Metrics", "Database", "Repository" ])
+    }
+
+    def void testBandsAreSequentialByDefault() {
+        Jdp.startupPriorityBand = 1
+        Jdp.init("de.jpaw.dp.tests.startup.graph")
+        assertEquals(StartupLog.get, #[ "Database", "Repository", "Metrics" ])
+    }
+
+    def void testCycleIsDetectedBeforeAnyStageRuns() {
+        try {
+            Jdp.init("de.jpaw.dp.tests.startup.cycle")
+            fail("cycle not detected")
+        } catch (CyclicStartupDependencyException e) {
+            assertTrue(StartupLog.get.empty)
+        }
+    }
+
+    def void testFailuresAreAggregated() {
+        try {
+            Jdp.init("de.jpaw.dp.tests.startup.failure")
+            fail("failures not reported")
+        } catch (StartupMethodExecutionException e) {
+            // the first failed stage is reported, later ones are attached, stages depending on a failed one are skipped
+            assertEquals(e.message, "de.jpaw.dp.tests.startup.failure.BrokenDatabase")
+            assertEquals(e.suppressed.length, 1)
+            assertTrue(e.suppressed.get(0).message.endsWith("BrokenMailer"))
+            assertEquals(StartupLog.get, #[ "Metrics" ])
+        }
+    }
+}
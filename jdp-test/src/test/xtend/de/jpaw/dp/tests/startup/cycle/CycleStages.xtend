@@ -0,0 +1,18 @@
+package de.jpaw.dp.tests.startup.cycle
+
+import de.jpaw.dp.Startup
+import de.jpaw.dp.tests.startup.StartupLog
+
+@Startup(value = 10, dependsOn = #[Egg])
+class Chicken {
+    def static void onStartup() {
+        StartupLog.add("Chicken")
+    }
+}
+
+@Startup(value = 20, dependsOn = #[Chicken])
+class Egg {
+    def static void onStartup() {
+        StartupLog.add("Egg")
+    }
+}
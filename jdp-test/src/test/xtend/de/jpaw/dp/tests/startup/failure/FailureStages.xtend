@@ -0,0 +1,32 @@
+package de.jpaw.dp.tests.startup.failure
+
+import de.jpaw.dp.Startup
+import de.jpaw.dp.tests.startup.StartupLog
+
+@Startup(10)
+class BrokenDatabase {
+    def static void onStartup() {
+        throw new IllegalStateException("no connection")
+    }
+}
+
+@Startup(value = 20, dependsOn = #[BrokenDatabase])
+class Repository {
+    def static void onStartup() {
+        StartupLog.add("Repository")
+    }
+}
+
+@Startup(30)
+class Metrics {
+    def static void onStartup() {
+        StartupLog.add("Metrics")
+    }
+}
+
+@Startup(40)
+class BrokenMailer {
+    def static void onStartup() {
+        throw new IllegalStateException("no server")
+    }
+}
@@ -0,0 +1,26 @@
+package de.jpaw.dp.tests.startup.graph
+
+import de.jpaw.dp.Startup
+import de.jpaw.dp.tests.startup.StartupLog
+
+@Startup(10)
+class Database {
+    def static void onStartup() {
+        Thread.sleep(100)
+        StartupLog.add("Database")
+    }
+}
+
+@Startup(value = 20, dependsOn = #[Database])
+class Repository {
+    def static void onStartup() {
+        StartupLog.add("Repository")
+    }
+}
+
+@Startup(30)
+class Metrics {
+    def static void onStartup() {
+        StartupLog.add("Metrics")
+    }
+}
@@ -0,0 +1,74 @@
+package de.jpaw.dp.tests.structured
+
+import de.jpaw.dp.Jdp
+import de.jpaw.dp.JdpContext
+import de.jpaw.dp.Structured
+import de.jpaw.dp.exceptions.StructuredScopeBindingException
+import java.util.concurrent.Callable
+import java.util.concurrent.Executors
+import org.testng.annotations.BeforeMethod
+import org.testng.annotations.Test
+
+import static org.testng.Assert.*
+
+@Structured
+class Tenant {
+    public final String name
+
+    new(String name) {
+        this.name = name
+    }
+}
+
+@Test(singleThreaded=true)
+class TestStructuredScope {
+
+    @BeforeMethod
+    def void setup() {
+        Jdp.reset
+        Jdp.init("de.jpaw.dp.tests.structured")
+    }
+
+    def void testBindingIsVisibleInBlockOnly() {
+        assertNull(Jdp.getOptional(Tenant))
+        Jdp.where(Tenant, new Tenant("ACME")).run [
+            assertEquals(Jdp.getRequired(Tenant).name, "ACME")
+        ]
+        assertNull(Jdp.getOptional(Tenant))
+    }
+
+    def void testNestedBindingShadowsEnclosing() {
+        Jdp.where(Tenant, new Tenant("outer")).run [
+            val inner = Jdp.where(Tenant, new Tenant("inner")).call [ Jdp.getRequired(Tenant).name ]
+            assertEquals(inner, "inner")
+            assertEquals(Jdp.getRequired(Tenant).name, "outer")
+        ]
+    }
+
+    def void testChildThreadDoesNotInheritBinding() {
+        val seen = newArrayList
+        Jdp.where(Tenant, new Tenant("ACME")).run [
+            val child = new Thread [ seen.add(Jdp.getOptional(Tenant)) ]
+            child.start
+            child.join
+        ]
+        assertEquals(seen, #[ null ])
+    }
+
+    def void testBindingIsPropagatedPerTask() {
+        val pool = JdpContext.propagating(Executors.newSingleThreadExecutor)
+        try {
+            // the pool thread is created within the block, the binding must not stay with it afterwards
+            val inside = Jdp.where(Tenant, new Tenant("ACME")).call [ pool.submit([ Jdp.getRequired(Tenant).name ] as Callable<String>).get ]
+            assertEquals(inside, "ACME")
+            assertNull(pool.submit([ Jdp.getOptional(Tenant) ] as Callable<Tenant>).get)
+        } finally {
+            pool.shutdown
+        }
+    }
+
+    @Test(expectedExceptions=StructuredScopeBindingException)
+    def void testInstanceCannotBeBoundPermanently() {
+        Jdp.bindInstanceTo(new Tenant("ACME"), Tenant)
+    }
+}